@@ -0,0 +1,90 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link CancelToken} of a request admitted by a {@link LoadShedder}, stamped with its admission time.
+ * <p>
+ * The token stays queued until the request {@link #start() starts} being served or is {@link #close() closed};
+ * while queued, it may be cancelled with {@link CancelReason#OVERLOAD} to shed load.
+ */
+public final class AdmissionToken implements CancelToken, AutoCloseable {
+    final CompletableCancelToken token;
+    final long sequence;
+    private final LoadShedder shedder;
+    private final int priority;
+    private final long admitted;
+
+    AdmissionToken(LoadShedder shedder, int priority, long admitted, long sequence) {
+        this.token = new CompletableCancelToken(new CompletableFuture<>());
+        this.shedder = shedder;
+        this.priority = priority;
+        this.admitted = admitted;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns the priority of the request; requests with lower priority are shed first.
+     *
+     * @return the request priority
+     */
+    public int priority() {
+        return priority;
+    }
+
+    /**
+     * Returns the admission time of the request, as reported by {@link System#nanoTime()}.
+     *
+     * @return the admission timestamp in nanoseconds
+     */
+    public long admitted() {
+        return admitted;
+    }
+
+    /**
+     * Removes the request from the queue as it starts being served, reporting its queueing delay to the shedder.
+     *
+     * @return {@code true} if the request may be served, {@code false} if it has already been shed or cancelled
+     */
+    public boolean start() {
+        return shedder.dequeue(this) && !token.canceled();
+    }
+
+    /**
+     * Removes the request from the queue without reporting its queueing delay, if it has not started yet.
+     */
+    @Override
+    public void close() {
+        shedder.remove(this);
+    }
+
+    @Override
+    public boolean canceled() {
+        return token.canceled();
+    }
+
+    @Override
+    public boolean cancellable() {
+        return true;
+    }
+
+    @Override
+    public void checkCanceled() {
+        token.checkCanceled();
+    }
+
+    @Override
+    public CancelReason reason() {
+        return token.reason();
+    }
+
+    @Override
+    public AwaitableStage<Void> onCancelled() {
+        return token;
+    }
+
+    @Override
+    public Registration register(Runnable action) {
+        return token.register(action);
+    }
+}
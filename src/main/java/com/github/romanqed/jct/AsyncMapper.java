@@ -0,0 +1,198 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Asynchronous map pipeline with bounded parallelism and token-driven early termination.
+ * <p>
+ * Input pulling, result delivery and slot bookkeeping are serialized by a work-in-progress counter,
+ * so they need no locks and do not recurse when mapped stages complete synchronously. Each in-flight item
+ * runs under its own child token held in one of {@code parallelism} slots; a single registration on the
+ * parent token is held for the whole pipeline. Memory is bounded by the parallelism, not by the input size.
+ *
+ * @param <T> the input item type
+ * @param <R> the mapped result type
+ */
+final class AsyncMapper<T, R> {
+    private static final VarHandle WIP;
+
+    static {
+        try {
+            WIP = MethodHandles.lookup().findVarHandle(AsyncMapper.class, "wip", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final CompletableFuture<Void> result;
+    private final int parallelism;
+    private final BiFunction<? super T, ? super CancelToken, ? extends CompletionStage<? extends R>> mapper;
+    private final ObjLongConsumer<? super R> consumer;
+    private final CancelToken token;
+    private final Queue<Completion> completions;
+    // Pipeline state, confined to the thread holding the work-in-progress counter
+    private final CompletableCancelToken[] children;
+    private final int[] free;
+    private Iterator<? extends T> iterator;
+    private int available;
+    private long index;
+    private boolean terminated;
+    private Registration registration;
+    @SuppressWarnings("unused")
+    private volatile int wip;
+
+    AsyncMapper(Iterator<? extends T> iterator,
+                int parallelism,
+                BiFunction<? super T, ? super CancelToken, ? extends CompletionStage<? extends R>> mapper,
+                ObjLongConsumer<? super R> consumer,
+                CancelToken token) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.result = new CompletableFuture<>();
+        this.iterator = iterator;
+        this.parallelism = parallelism;
+        this.mapper = mapper;
+        this.consumer = consumer;
+        this.token = token;
+        this.completions = new ConcurrentLinkedQueue<>();
+        this.children = new CompletableCancelToken[parallelism];
+        this.free = new int[parallelism];
+        for (var i = 0; i < parallelism; ++i) {
+            free[i] = i;
+        }
+        this.available = parallelism;
+    }
+
+    void start() {
+        // Hold the counter while registering, so an immediate abort is drained afterwards
+        WIP.getAndAdd(this, 1);
+        registration = token.register(this::abort);
+        loop(1);
+    }
+
+    private void abort() {
+        result.completeExceptionally(new CancelledException(token.reason()));
+        drain();
+    }
+
+    private void drain() {
+        if ((int) WIP.getAndAdd(this, 1) == 0) {
+            loop(1);
+        }
+    }
+
+    private void loop(int missed) {
+        while (true) {
+            if (!terminated) {
+                step();
+            }
+            if (terminated) {
+                completions.clear();
+            }
+            missed = (int) WIP.getAndAdd(this, -missed) - missed;
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void step() {
+        Completion completion;
+        while ((completion = completions.poll()) != null) {
+            children[completion.slot] = null;
+            free[available++] = completion.slot;
+            if (result.isDone()) {
+                continue;
+            }
+            var error = completion.error;
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+                continue;
+            }
+            try {
+                consumer.accept(completion.value, completion.index);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+        while (!result.isDone() && available > 0 && !token.canceled()) {
+            T item;
+            try {
+                if (!iterator.hasNext()) {
+                    if (available == parallelism) {
+                        result.complete(null);
+                    }
+                    break;
+                }
+                item = iterator.next();
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                break;
+            }
+            var slot = free[--available];
+            var child = new CompletableCancelToken(new CompletableFuture<>());
+            children[slot] = child;
+            var callback = new Completion(slot, index++);
+            CompletionStage<? extends R> stage;
+            try {
+                stage = mapper.apply(item, child);
+            } catch (Throwable e) {
+                stage = CompletableFuture.failedFuture(e);
+            }
+            stage.whenComplete(callback);
+        }
+        if (token.canceled() && !result.isDone()) {
+            result.completeExceptionally(new CancelledException(token.reason()));
+        }
+        if (result.isDone()) {
+            terminate();
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        iterator = null;
+        var reason = token.canceled() ? token.reason() : CancelReason.UNSPECIFIED;
+        for (var i = 0; i < parallelism; ++i) {
+            var child = children[i];
+            if (child != null) {
+                children[i] = null;
+                child.cancel(reason);
+            }
+        }
+        registration.unregister();
+    }
+
+    private final class Completion implements BiConsumer<R, Throwable> {
+        final int slot;
+        final long index;
+        R value;
+        Throwable error;
+
+        private Completion(int slot, long index) {
+            this.slot = slot;
+            this.index = index;
+        }
+
+        @Override
+        public void accept(R value, Throwable error) {
+            this.value = value;
+            this.error = error;
+            completions.offer(this);
+            drain();
+        }
+    }
+}
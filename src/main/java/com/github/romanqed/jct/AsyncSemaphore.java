@@ -0,0 +1,307 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking semaphore handing out {@link Permit} instances through {@link AwaitableStage} results.
+ * <p>
+ * While no acquirer is queued, permits are taken and returned with a single compare-and-set.
+ * Otherwise acquirers are queued in FIFO order in an intrusive list, where the queued node serves as
+ * the returned stage and, once granted, as the permit itself. A waiter whose {@link CancelToken} is cancelled
+ * is unlinked from the queue in constant time and fails with a {@link CancelledException},
+ * so permits are never handed to abandoned requests. Stages are completed outside the queue lock by the thread
+ * that granted them: continuations releasing their permits synchronously only queue the next hand-off
+ * to that thread, so a long queue is drained in a loop rather than by recursion.
+ */
+public final class AsyncSemaphore {
+    private static final VarHandle PERMITS;
+    // Hand-offs queued by continuations of the waiters the current thread is completing
+    private static final ThreadLocal<Drain> DRAIN = ThreadLocal.withInitial(Drain::new);
+
+    static {
+        try {
+            PERMITS = MethodHandles.lookup().findVarHandle(AsyncSemaphore.class, "permits", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private volatile int permits;
+    // Waiter queue, guarded by this; the head is also read without the lock by the fast path
+    private volatile Waiter head;
+    private Waiter tail;
+    private int waiting;
+
+    /**
+     * Creates a semaphore with the given number of permits.
+     *
+     * @param permits the initial number of permits
+     */
+    public AsyncSemaphore(int permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("Permits must not be negative");
+        }
+        this.permits = permits;
+    }
+
+    /**
+     * Returns the number of currently available permits.
+     *
+     * @return the available permit count
+     */
+    public int available() {
+        return permits;
+    }
+
+    /**
+     * Returns the number of acquirers currently queued.
+     *
+     * @return the queued acquirer count
+     */
+    public synchronized int waiting() {
+        return waiting;
+    }
+
+    private boolean take() {
+        var current = permits;
+        while (current > 0) {
+            var witness = (int) PERMITS.compareAndExchange(this, current, current - 1);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Acquires a permit if one is available and no acquirer is queued.
+     *
+     * @return the acquired permit, or {@code null} if none is available
+     */
+    public Permit tryAcquire() {
+        if (head != null || !take()) {
+            return null;
+        }
+        return Waiter.granted(this);
+    }
+
+    /**
+     * Acquires a permit, queueing the acquirer until one is released or the given token is cancelled.
+     *
+     * @param token the token abandoning the acquisition
+     * @return an {@link AwaitableStage} completing with the permit,
+     * or failing with a {@link CancelledException} if the token is cancelled first
+     */
+    public AwaitableStage<Permit> acquire(CancelToken token) {
+        if (token.canceled()) {
+            return new CompletableAwaitableStage<>(CompletableFuture.failedFuture(new CancelledException(token.reason())));
+        }
+        if (head == null && take()) {
+            return Waiter.granted(this);
+        }
+        var ret = new Waiter(this, Objects.requireNonNull(token));
+        Waiter granted;
+        synchronized (this) {
+            var last = tail;
+            if (last == null) {
+                head = ret;
+            } else {
+                last.next = ret;
+                ret.prev = last;
+            }
+            tail = ret;
+            ++waiting;
+            // Permits may have been released before the waiter became visible to releasing threads
+            granted = grant();
+        }
+        complete(granted);
+        if (token.cancellable()) {
+            ret.registration = token.register(ret);
+            if (ret.state != Waiter.QUEUED) {
+                ret.registration.unregister();
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Acquires a permit without a cancellation token.
+     *
+     * @return an {@link AwaitableStage} completing with the permit
+     */
+    public AwaitableStage<Permit> acquire() {
+        return acquire(EmptyCancelToken.TOKEN);
+    }
+
+    void release() {
+        PERMITS.getAndAdd(this, 1);
+        if (head == null) {
+            return;
+        }
+        Waiter granted;
+        synchronized (this) {
+            granted = grant();
+        }
+        complete(granted);
+    }
+
+    private void unlink(Waiter waiter) {
+        var prev = waiter.prev;
+        var next = waiter.next;
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.prev = prev;
+        }
+        waiter.prev = null;
+        waiter.next = null;
+        --waiting;
+    }
+
+    private Waiter grant() {
+        Waiter ret = null;
+        Waiter last = null;
+        Waiter waiter;
+        while ((waiter = head) != null && take()) {
+            unlink(waiter);
+            waiter.state = Waiter.GRANTED;
+            // Granted waiters are chained through the freed link to be completed outside the lock
+            if (last == null) {
+                ret = waiter;
+            } else {
+                last.next = waiter;
+            }
+            last = waiter;
+        }
+        return ret;
+    }
+
+    private static void complete(Waiter granted) {
+        if (granted == null) {
+            return;
+        }
+        var drain = DRAIN.get();
+        // The thread is already completing waiters further up its stack, so its loop picks these up
+        if (drain.active) {
+            drain.append(granted);
+            return;
+        }
+        drain.active = true;
+        try {
+            while (granted != null) {
+                var next = granted.next;
+                granted.next = null;
+                granted.grant();
+                granted = next == null ? drain.poll() : next;
+            }
+        } finally {
+            drain.active = false;
+        }
+    }
+
+    boolean cancel(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.state != Waiter.QUEUED) {
+                return false;
+            }
+            unlink(waiter);
+            waiter.state = Waiter.CANCELLED;
+        }
+        return true;
+    }
+
+    private static final class Drain {
+        boolean active;
+        Waiter head;
+        Waiter tail;
+
+        void append(Waiter chain) {
+            if (tail == null) {
+                head = chain;
+            } else {
+                tail.next = chain;
+            }
+            while (chain.next != null) {
+                chain = chain.next;
+            }
+            tail = chain;
+        }
+
+        Waiter poll() {
+            var ret = head;
+            head = null;
+            tail = null;
+            return ret;
+        }
+    }
+
+    private static final class Waiter extends FutureAwaitableStage<Permit> implements Permit, Runnable {
+        static final int QUEUED = 0;
+        static final int GRANTED = 1;
+        static final int CANCELLED = 2;
+        static final int RELEASED = 3;
+        private static final VarHandle STATE;
+
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(Waiter.class, "state", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final AsyncSemaphore semaphore;
+        private final CancelToken token;
+        volatile int state;
+        volatile Registration registration;
+        Waiter prev;
+        Waiter next;
+
+        private Waiter(AsyncSemaphore semaphore, CancelToken token) {
+            super(new CompletableFuture<>());
+            this.semaphore = semaphore;
+            this.token = token;
+        }
+
+        static Waiter granted(AsyncSemaphore semaphore) {
+            var ret = new Waiter(semaphore, null);
+            ret.state = GRANTED;
+            ret.future.complete(ret);
+            return ret;
+        }
+
+        void grant() {
+            var registration = this.registration;
+            if (registration != null) {
+                registration.unregister();
+            }
+            future.complete(this);
+        }
+
+        @Override
+        public void run() {
+            if (semaphore.cancel(this)) {
+                future.completeExceptionally(new CancelledException(token.reason()));
+            }
+        }
+
+        @Override
+        public boolean release() {
+            if (!STATE.compareAndSet(this, GRANTED, RELEASED)) {
+                return false;
+            }
+            semaphore.release();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.romanqed.jct;
+
+/**
+ * Policy computing the delay between attempts of a retried operation.
+ */
+@FunctionalInterface
+public interface Backoff {
+
+    /**
+     * Returns the delay before the next attempt.
+     *
+     * @param attempt the number of attempts that have already failed, starting from 1
+     * @return the delay in nanoseconds, zero or negative to retry immediately
+     */
+    long delay(int attempt);
+}
@@ -0,0 +1,43 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Task running on its own thread, which is interrupted when the bound {@link CancelToken} fires.
+ * <p>
+ * The token registration is held only while the task runs, so the thread is never interrupted
+ * after the task has finished.
+ *
+ * @param <T> the result type
+ */
+final class BoundTask<T> implements Runnable {
+    final CompletableFuture<T> result;
+    private final Callable<T> task;
+    private final CancelToken token;
+
+    BoundTask(Callable<T> task, CancelToken token) {
+        this.result = new CompletableFuture<>();
+        this.task = task;
+        this.token = token;
+    }
+
+    @Override
+    public void run() {
+        var scope = new InterruptScope(token);
+        try {
+            token.checkCanceled();
+            result.complete(task.call());
+        } catch (Throwable e) {
+            if (token.canceled() && !(e instanceof CancelledException)) {
+                var ex = new CancelledException(token.reason());
+                ex.initCause(e);
+                result.completeExceptionally(ex);
+            } else {
+                result.completeExceptionally(e);
+            }
+        } finally {
+            scope.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.github.romanqed.jct;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codec propagating the cancellation state and remaining deadline of a {@link CancelToken} across process boundaries.
+ * <p>
+ * The binary form is a flags byte followed by a variable-length integer: the reason code of a cancelled token,
+ * or the remaining time to the deadline in nanoseconds. It takes at most {@link #MAX_LENGTH} bytes and is written
+ * to and read from a {@link ByteBuffer} without allocation. The text form carries the same data in a short
+ * string suitable for a request header.
+ * <p>
+ * Deadlines are sent as the time remaining when encoding and re-armed relative to the moment of decoding,
+ * so clocks of the two sides need not be synchronized; the transit time itself is not subtracted.
+ * The receiving side gets a {@link CancelSource} whose token is cancelled with the original {@link CancelReason},
+ * or with {@link CancelReason#TIMEOUT} once the remaining time elapses. The source should be cancelled when
+ * the request ends, which releases the timer entry of the deadline instead of keeping the token queued
+ * until the deadline expires.
+ */
+public final class CancelCodec {
+    /**
+     * The deadline value denoting that a token has no deadline.
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    /**
+     * The maximum number of bytes written by {@link #encode(CancelToken, long, ByteBuffer)}.
+     */
+    public static final int MAX_LENGTH = 11;
+    private static final int VERSION = 1 << 4;
+    private static final int VERSION_MASK = 0xF0;
+    private static final int CANCELLED = 1;
+    private static final int DEADLINE = 1 << 1;
+
+    private CancelCodec() {
+    }
+
+    private static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        var ret = 0L;
+        for (var shift = 0; shift < 64; shift += 7) {
+            var b = buffer.get();
+            ret |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return ret;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(deadline - System.nanoTime(), 0);
+    }
+
+    private static CancelReason reason(int code) {
+        switch (code) {
+            case 0:
+                return CancelReason.UNSPECIFIED;
+            case 1:
+                return CancelReason.TIMEOUT;
+            case 2:
+                return CancelReason.SHUTDOWN;
+            case 3:
+                return CancelReason.DISCONNECTED;
+            case 4:
+                return CancelReason.OVERLOAD;
+            default:
+                return new CancelReason(code, "Remote");
+        }
+    }
+
+    private static CancelSource source(boolean cancelled, long value) {
+        var ret = Cancellation.source();
+        if (cancelled) {
+            ret.cancel(reason((int) value));
+        } else if (value == 0) {
+            ret.cancel(CancelReason.TIMEOUT);
+        } else if (value != NO_DEADLINE) {
+            ret.cancelAfter(value, TimeUnit.NANOSECONDS);
+        }
+        return ret;
+    }
+
+    /**
+     * Writes the state of the given token and its deadline to the buffer.
+     *
+     * @param token    the token to encode
+     * @param deadline the deadline of the token as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}
+     * @param buffer   the buffer to write to, with at least {@link #MAX_LENGTH} bytes remaining
+     * @return the number of bytes written
+     */
+    public static int encode(CancelToken token, long deadline, ByteBuffer buffer) {
+        var start = buffer.position();
+        var reason = token.reason();
+        if (reason != null) {
+            buffer.put((byte) (VERSION | CANCELLED));
+            writeVarLong(buffer, reason.code() & 0xFFFFFFFFL);
+        } else if (deadline != NO_DEADLINE) {
+            buffer.put((byte) (VERSION | DEADLINE));
+            writeVarLong(buffer, remaining(deadline));
+        } else {
+            buffer.put((byte) VERSION);
+        }
+        return buffer.position() - start;
+    }
+
+    /**
+     * Writes the state of the given token without a deadline to the buffer.
+     *
+     * @param token  the token to encode
+     * @param buffer the buffer to write to, with at least {@link #MAX_LENGTH} bytes remaining
+     * @return the number of bytes written
+     */
+    public static int encode(CancelToken token, ByteBuffer buffer) {
+        return encode(token, NO_DEADLINE, buffer);
+    }
+
+    /**
+     * Reads a token state from the buffer and rebuilds a source bound to the remaining deadline.
+     *
+     * @param buffer the buffer to read from
+     * @return a source whose token is already cancelled, is cancelled when the deadline elapses,
+     * or is not cancelled at all if neither cancellation nor deadline was propagated;
+     * cancel it once the request ends to release its deadline timer
+     * @throws IllegalArgumentException if the buffer does not contain a complete encoded token state,
+     *                                  in which case its position is unspecified
+     */
+    public static CancelSource decode(ByteBuffer buffer) {
+        try {
+            var flags = buffer.get() & 0xFF;
+            if ((flags & VERSION_MASK) != VERSION) {
+                throw new IllegalArgumentException("Unsupported cancellation state version");
+            }
+            if ((flags & CANCELLED) != 0) {
+                return source(true, readVarLong(buffer));
+            }
+            if ((flags & DEADLINE) != 0) {
+                return source(false, Math.min(readVarLong(buffer), NO_DEADLINE - 1));
+            }
+            return source(false, NO_DEADLINE);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated cancellation state", e);
+        }
+    }
+
+    /**
+     * Encodes the state of the given token and its deadline as a header value.
+     * <p>
+     * The value is {@code c<code>} for a cancelled token, {@code d<nanos>} for a token with
+     * a deadline and {@code n} otherwise.
+     *
+     * @param token    the token to encode
+     * @param deadline the deadline of the token as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}
+     * @return the header value
+     */
+    public static String encode(CancelToken token, long deadline) {
+        var reason = token.reason();
+        if (reason != null) {
+            return "c" + reason.code();
+        }
+        if (deadline != NO_DEADLINE) {
+            return "d" + remaining(deadline);
+        }
+        return "n";
+    }
+
+    /**
+     * Decodes a header value and rebuilds a source bound to the remaining deadline.
+     *
+     * @param header the header value produced by {@link #encode(CancelToken, long)}
+     * @return a source whose token is already cancelled, is cancelled when the deadline elapses,
+     * or is not cancelled at all if neither cancellation nor deadline was propagated;
+     * cancel it once the request ends to release its deadline timer
+     * @throws IllegalArgumentException if the header value is malformed
+     */
+    public static CancelSource decode(String header) {
+        if (header.isEmpty()) {
+            throw new IllegalArgumentException("Empty cancellation header");
+        }
+        var kind = header.charAt(0);
+        if (kind == 'n' && header.length() == 1) {
+            return source(false, NO_DEADLINE);
+        }
+        if (kind != 'c' && kind != 'd') {
+            throw new IllegalArgumentException("Malformed cancellation header: " + header);
+        }
+        // Parsing the number in place avoids a substring
+        if (kind == 'c') {
+            return source(true, Integer.parseInt(header, 1, header.length(), 10));
+        }
+        var remaining = Long.parseLong(header, 1, header.length(), 10);
+        if (remaining < 0) {
+            throw new IllegalArgumentException("Malformed cancellation header: " + header);
+        }
+        return source(false, Math.min(remaining, NO_DEADLINE - 1));
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.romanqed.jct;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Group of {@link CancelSource} instances that can be cancelled or reset in a single operation.
+ * <p>
+ * Membership is kept in a concurrent set with per-bin locking, so sources can join and leave
+ * from many threads without serializing on the group. A source leaves the group in constant time
+ * by unregistering the {@link Registration} returned from {@link #join(CancelSource)}, typically
+ * once its operation completes.
+ */
+public final class CancelGroup {
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Set<Member> members;
+    private final int batchSize;
+
+    /**
+     * Creates an empty group that dispatches parallel cancellation in batches of the given size.
+     *
+     * @param batchSize the number of sources cancelled by a single task in {@link #cancelAll(Executor)}
+     */
+    public CancelGroup(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.members = ConcurrentHashMap.newKeySet();
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Creates an empty group with the default batch size.
+     */
+    public CancelGroup() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Adds the given source to the group.
+     *
+     * @param source the source to add
+     * @return a {@link Registration} that removes the source from the group
+     */
+    public Registration join(CancelSource source) {
+        var ret = new Member(members, source);
+        members.add(ret);
+        return ret;
+    }
+
+    /**
+     * Returns the number of sources currently in the group.
+     *
+     * @return the member count
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Cancels all sources in the group on the calling thread.
+     */
+    public void cancelAll() {
+        for (var member : members) {
+            member.source.cancel();
+        }
+    }
+
+    /**
+     * Cancels all sources in the group on the calling thread with the given reason.
+     *
+     * @param reason the cancellation reason
+     */
+    public void cancelAll(CancelReason reason) {
+        for (var member : members) {
+            member.source.cancel(reason);
+        }
+    }
+
+    /**
+     * Cancels all sources in the group, dispatching batches of sources to the given executor,
+     * so cancellation callbacks run in parallel.
+     *
+     * @param executor the executor running cancellation batches
+     * @return an {@link AwaitableStage} that completes when all batches have been processed
+     */
+    public AwaitableStage<Void> cancelAll(Executor executor) {
+        var tasks = new ArrayList<CompletableFuture<?>>();
+        var batch = new CancelSource[batchSize];
+        var count = 0;
+        for (var member : members) {
+            batch[count++] = member.source;
+            if (count == batchSize) {
+                tasks.add(CompletableFuture.runAsync(new Batch(batch, count), executor));
+                batch = new CancelSource[batchSize];
+                count = 0;
+            }
+        }
+        if (count != 0) {
+            tasks.add(CompletableFuture.runAsync(new Batch(batch, count), executor));
+        }
+        var future = CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+        return new CompletableAwaitableStage<>(future);
+    }
+
+    /**
+     * Resets all sources in the group, so they issue fresh tokens.
+     */
+    public void resetAll() {
+        for (var member : members) {
+            member.source.reset();
+        }
+    }
+
+    private static final class Member implements Registration {
+        final Set<Member> members;
+        final CancelSource source;
+
+        private Member(Set<Member> members, CancelSource source) {
+            this.members = members;
+            this.source = source;
+        }
+
+        @Override
+        public boolean unregister() {
+            return members.remove(this);
+        }
+    }
+
+    private static final class Batch implements Runnable {
+        private final CancelSource[] sources;
+        private final int count;
+
+        private Batch(CancelSource[] sources, int count) {
+            this.sources = sources;
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            for (var i = 0; i < count; ++i) {
+                sources[i].cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.romanqed.jct;
+
+/**
+ * Describes why a {@link CancelSource} was cancelled.
+ * <p>
+ * Reasons are immutable and meant to be preallocated, so cancelling with a reason allocates nothing.
+ * Applications can define their own reasons alongside the predefined constants, using codes
+ * outside the range reserved by this library.
+ */
+public final class CancelReason {
+    /**
+     * The reason reported when cancellation was requested without one.
+     */
+    public static final CancelReason UNSPECIFIED = new CancelReason(0, "Unspecified");
+
+    /**
+     * The reason used when a deadline or an idle timeout expired.
+     */
+    public static final CancelReason TIMEOUT = new CancelReason(1, "Timeout");
+
+    /**
+     * The reason used when the application or a component is shutting down.
+     */
+    public static final CancelReason SHUTDOWN = new CancelReason(2, "Shutdown");
+
+    /**
+     * The reason used when the party waiting for the result has gone away.
+     */
+    public static final CancelReason DISCONNECTED = new CancelReason(3, "Disconnected");
+
+    /**
+     * The reason used when work is shed to keep latency within target under overload.
+     */
+    public static final CancelReason OVERLOAD = new CancelReason(4, "Overload");
+
+    private final int code;
+    private final String message;
+
+    /**
+     * Creates a new cancellation reason.
+     *
+     * @param code    the numeric code of the reason, codes below 256 are reserved by this library
+     * @param message the human-readable description of the reason
+     */
+    public CancelReason(int code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    /**
+     * Returns the numeric code of this reason.
+     *
+     * @return the reason code
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * Returns the human-readable description of this reason.
+     *
+     * @return the reason message
+     */
+    public String message() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return message + " (" + code + ")";
+    }
+}
@@ -0,0 +1,326 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registry of cancellation flags keyed by primitive {@code long} identifiers.
+ * <p>
+ * Flags are stored in a concurrent bitmap split into fixed-size segments, so tracking an operation
+ * costs a single bit instead of a dedicated {@link CancelSource}. Segments that no longer contain
+ * registered identifiers are cleared and recycled.
+ * <p>
+ * Tokens issued by {@link #register(long)} are lightweight views over the bitmap: their
+ * {@link CancelToken#canceled()} is a single bit test. A token stays valid until its identifier
+ * is released with {@link #release(long)}; identifiers must be unique among registered operations.
+ */
+public final class CancelRegistry {
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final int SEGMENT_WORDS = (1 << SEGMENT_SHIFT) >>> 6;
+    private static final int DEFAULT_POOL_SIZE = 64;
+
+    private final ConcurrentHashMap<Long, Segment> segments;
+    private final ConcurrentHashMap<Long, CompletableFuture<Void>> waiters;
+    private final ConcurrentLinkedQueue<Segment> pool;
+    private final AtomicInteger pooled;
+    private final int poolSize;
+
+    /**
+     * Creates a registry that keeps at most the given number of free segments for reuse.
+     *
+     * @param poolSize the maximum number of recycled segments kept in the pool
+     */
+    public CancelRegistry(int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("Pool size must be non-negative");
+        }
+        this.segments = new ConcurrentHashMap<>();
+        this.waiters = new ConcurrentHashMap<>();
+        this.pool = new ConcurrentLinkedQueue<>();
+        this.pooled = new AtomicInteger();
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Creates a registry with the default segment pool size.
+     */
+    public CancelRegistry() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    private static long mask(long id) {
+        return 1L << id;
+    }
+
+    private static int word(long id) {
+        return ((int) id & SEGMENT_MASK) >>> 6;
+    }
+
+    private Segment allocate(Long key) {
+        var ret = pool.poll();
+        if (ret == null) {
+            return new Segment();
+        }
+        pooled.decrementAndGet();
+        ret.refs.set(0);
+        return ret;
+    }
+
+    private void recycle(Segment segment) {
+        if (pooled.incrementAndGet() > poolSize) {
+            pooled.decrementAndGet();
+            return;
+        }
+        for (var i = 0; i < SEGMENT_WORDS; ++i) {
+            segment.bits.set(i, 0);
+        }
+        pool.offer(segment);
+    }
+
+    private Segment acquire(long key) {
+        while (true) {
+            var segment = segments.computeIfAbsent(key, this::allocate);
+            if (segment.retain()) {
+                return segment;
+            }
+            // Segment is being retired, wait for its removal and try again
+            segments.remove(key, segment);
+        }
+    }
+
+    /**
+     * Registers an operation with the given identifier and returns a token that observes its flag.
+     * <p>
+     * Registration clears any flag previously set for the identifier.
+     *
+     * @param id the operation identifier
+     * @return a lightweight {@link CancelToken} view of the identifier's flag
+     */
+    public CancelToken register(long id) {
+        var segment = acquire(id >> SEGMENT_SHIFT);
+        var word = word(id);
+        var mask = mask(id);
+        segment.bits.getAndAccumulate(word, ~mask, (a, b) -> a & b);
+        return new RegistryCancelToken(this, segment.bits, word, mask, id);
+    }
+
+    /**
+     * Releases the given identifier, clearing its flag and allowing its segment to be recycled.
+     * <p>
+     * Tokens previously issued for the identifier must not be used after release.
+     *
+     * @param id the operation identifier
+     */
+    public void release(long id) {
+        var key = id >> SEGMENT_SHIFT;
+        var segment = segments.get(key);
+        if (segment == null) {
+            return;
+        }
+        segment.bits.getAndAccumulate(word(id), ~mask(id), (a, b) -> a & b);
+        if (!waiters.isEmpty()) {
+            waiters.remove(id);
+        }
+        if (segment.release()) {
+            segments.remove(key, segment);
+            recycle(segment);
+        }
+    }
+
+    /**
+     * Checks whether the operation with the given identifier has been cancelled.
+     *
+     * @param id the operation identifier
+     * @return {@code true} if cancelled, {@code false} otherwise
+     */
+    public boolean canceled(long id) {
+        var segment = segments.get(id >> SEGMENT_SHIFT);
+        return segment != null && (segment.bits.get(word(id)) & mask(id)) != 0;
+    }
+
+    /**
+     * Cancels the operation with the given identifier.
+     * <p>
+     * Does nothing if no operation from the identifier's segment is registered.
+     *
+     * @param id the operation identifier
+     */
+    public void cancel(long id) {
+        var segment = segments.get(id >> SEGMENT_SHIFT);
+        if (segment == null) {
+            return;
+        }
+        segment.bits.getAndAccumulate(word(id), mask(id), (a, b) -> a | b);
+        if (!waiters.isEmpty()) {
+            var future = waiters.get(id);
+            if (future != null) {
+                future.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Cancels all registered operations with identifiers in the given inclusive range.
+     *
+     * @param first the first identifier of the range
+     * @param last  the last identifier of the range
+     */
+    public void cancel(long first, long last) {
+        if (first > last) {
+            throw new IllegalArgumentException("Invalid identifier range");
+        }
+        var from = first >> SEGMENT_SHIFT;
+        var to = last >> SEGMENT_SHIFT;
+        if (to - from < segments.size()) {
+            for (var key = from; ; ++key) {
+                var segment = segments.get(key);
+                if (segment != null) {
+                    segment.fill(key, first, last);
+                }
+                if (key == to) {
+                    break;
+                }
+            }
+        } else {
+            for (var entry : segments.entrySet()) {
+                var key = entry.getKey();
+                if (key >= from && key <= to) {
+                    entry.getValue().fill(key, first, last);
+                }
+            }
+        }
+        if (waiters.isEmpty()) {
+            return;
+        }
+        for (var entry : waiters.entrySet()) {
+            var id = entry.getKey();
+            if (id >= first && id <= last) {
+                entry.getValue().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Cancels all registered operations whose identifiers start with the given prefix.
+     *
+     * @param prefix the prefix value, stored in the lowest {@code bits} bits
+     * @param bits   the number of high-order identifier bits occupied by the prefix, from 1 to 64
+     */
+    public void cancelPrefix(long prefix, int bits) {
+        if (bits < 1 || bits > Long.SIZE) {
+            throw new IllegalArgumentException("Prefix length must be between 1 and 64");
+        }
+        var shift = Long.SIZE - bits;
+        var first = shift == 0 ? prefix : prefix << shift;
+        var last = shift == 0 ? prefix : first | (-1L >>> bits);
+        cancel(first, last);
+    }
+
+    /**
+     * Cancels all registered operations.
+     */
+    public void cancelAll() {
+        for (var segment : segments.values()) {
+            for (var i = 0; i < SEGMENT_WORDS; ++i) {
+                segment.bits.set(i, -1L);
+            }
+        }
+        for (var future : waiters.values()) {
+            future.complete(null);
+        }
+    }
+
+    private AwaitableStage<Void> stage(RegistryCancelToken token) {
+        var future = waiters.computeIfAbsent(token.id, k -> new CompletableFuture<>());
+        if (token.canceled()) {
+            future.complete(null);
+        }
+        return new CompletableAwaitableStage<>(future);
+    }
+
+    private static final class Segment {
+        final AtomicLongArray bits;
+        final AtomicInteger refs;
+
+        private Segment() {
+            this.bits = new AtomicLongArray(SEGMENT_WORDS);
+            this.refs = new AtomicInteger();
+        }
+
+        boolean retain() {
+            while (true) {
+                var count = refs.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean release() {
+            return refs.decrementAndGet() == 0 && refs.compareAndSet(0, -1);
+        }
+
+        void fill(long key, long first, long last) {
+            var base = key << SEGMENT_SHIFT;
+            var from = (int) (Math.max(first, base) - base);
+            var to = (int) (Math.min(last, base + SEGMENT_MASK) - base);
+            var low = from >>> 6;
+            var high = to >>> 6;
+            for (var i = low; i <= high; ++i) {
+                var mask = -1L;
+                if (i == low) {
+                    mask &= -1L << from;
+                }
+                if (i == high) {
+                    mask &= -1L >>> (63 - (to & 63));
+                }
+                bits.getAndAccumulate(i, mask, (a, b) -> a | b);
+            }
+        }
+    }
+
+    private static final class RegistryCancelToken implements CancelToken {
+        private final CancelRegistry registry;
+        private final AtomicLongArray bits;
+        private final int word;
+        private final long mask;
+        private final long id;
+
+        private RegistryCancelToken(CancelRegistry registry, AtomicLongArray bits, int word, long mask, long id) {
+            this.registry = registry;
+            this.bits = bits;
+            this.word = word;
+            this.mask = mask;
+            this.id = id;
+        }
+
+        @Override
+        public boolean canceled() {
+            return (bits.get(word) & mask) != 0;
+        }
+
+        @Override
+        public boolean cancellable() {
+            return true;
+        }
+
+        @Override
+        public void checkCanceled() {
+            if ((bits.get(word) & mask) != 0) {
+                throw new CancelledException(CancelReason.UNSPECIFIED);
+            }
+        }
+
+        @Override
+        public AwaitableStage<Void> onCancelled() {
+            return registry.stage(this);
+        }
+    }
+}
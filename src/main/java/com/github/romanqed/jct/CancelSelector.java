@@ -0,0 +1,232 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Selector blocking the calling thread until any of several {@link CancelToken} instances is cancelled.
+ * <p>
+ * The thread parks once for all tokens and is woken by the first token to fire; on return, the selector
+ * is detached from every token. Waiter nodes are kept by the selector and linked directly into the callback
+ * lists of {@link CompletableCancelToken} instances, or of the tokens that combined and fan-in tokens latch into,
+ * so repeated selections over the same number of tokens do not allocate. Other token types are observed through
+ * {@link CancelToken#register(Runnable)}.
+ * <p>
+ * A selector is not thread-safe and must be used by one thread at a time.
+ */
+public final class CancelSelector {
+    /**
+     * The value returned when no token was cancelled before the timeout elapsed.
+     */
+    public static final int TIMEOUT = -1;
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(CancelSelector.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Waiter[] waiters;
+    private int epoch;
+    private Thread thread;
+    // Epoch of the current selection in the high half, selected index + 1 in the low half
+    @SuppressWarnings("unused")
+    private volatile long state;
+
+    /**
+     * Creates a new selector.
+     */
+    public CancelSelector() {
+        this.waiters = new Waiter[0];
+    }
+
+    private static int poll(CancelToken[] tokens) {
+        for (var i = 0; i < tokens.length; ++i) {
+            if (tokens[i].canceled()) {
+                return i;
+            }
+        }
+        return TIMEOUT;
+    }
+
+    /**
+     * Returns the index of the first cancelled token without blocking.
+     *
+     * @param tokens the tokens to check
+     * @return the index of a cancelled token, or {@link #TIMEOUT} if none is cancelled
+     */
+    public int selectNow(CancelToken[] tokens) {
+        return poll(tokens);
+    }
+
+    /**
+     * Blocks until any of the given tokens is cancelled.
+     *
+     * @param tokens the tokens to wait for
+     * @return the index of the cancelled token
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public int select(CancelToken[] tokens) throws InterruptedException {
+        return select(tokens, 0, false);
+    }
+
+    /**
+     * Blocks until any of the given tokens is cancelled or the timeout elapses.
+     *
+     * @param tokens  the tokens to wait for
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout parameter
+     * @return the index of the cancelled token, or {@link #TIMEOUT} if the timeout elapsed
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public int select(CancelToken[] tokens, long timeout, TimeUnit unit) throws InterruptedException {
+        return select(tokens, unit.toNanos(timeout), true);
+    }
+
+    private int select(CancelToken[] tokens, long nanos, boolean timed) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        var ret = poll(tokens);
+        if (ret != TIMEOUT || timed && nanos <= 0) {
+            return ret;
+        }
+        var deadline = System.nanoTime() + nanos;
+        var waiters = reserve(tokens.length);
+        var epoch = ++this.epoch;
+        var initial = (long) epoch << 32;
+        thread = Thread.currentThread();
+        state = initial;
+        var count = 0;
+        try {
+            while (count < tokens.length && state == initial) {
+                waiters[count].attach(tokens[count], epoch);
+                ++count;
+            }
+            while (true) {
+                var current = state;
+                if (current != initial) {
+                    return (int) current - 1;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (!timed) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return TIMEOUT;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            for (var i = 0; i < count; ++i) {
+                if (!waiters[i].detach()) {
+                    // The node is still referenced by a firing callback list, so it cannot be reused
+                    waiters[i] = new Waiter(this, i);
+                }
+            }
+            thread = null;
+        }
+    }
+
+    private Waiter[] reserve(int length) {
+        var ret = waiters;
+        if (ret.length >= length) {
+            return ret;
+        }
+        var grown = new Waiter[length];
+        System.arraycopy(ret, 0, grown, 0, ret.length);
+        for (var i = ret.length; i < length; ++i) {
+            grown[i] = new Waiter(this, i);
+        }
+        waiters = grown;
+        return grown;
+    }
+
+    private void signal(int epoch, int index) {
+        var expected = (long) epoch << 32;
+        // Callbacks from earlier selections carry a stale epoch and are ignored
+        if (STATE.compareAndSet(this, expected, expected | (index + 1))) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static final class Waiter extends TokenRegistration implements Runnable {
+        private final CancelSelector selector;
+        private final int index;
+        private Registration registration;
+        private boolean linked;
+        private volatile int epoch;
+        private volatile boolean fired;
+
+        private Waiter(CancelSelector selector, int index) {
+            super(null);
+            this.selector = selector;
+            this.index = index;
+        }
+
+        void attach(CancelToken token, int epoch) {
+            this.epoch = epoch;
+            this.fired = false;
+            var latch = latch(token);
+            if (latch != null) {
+                linked = latch.link(this);
+                if (!linked) {
+                    fire();
+                }
+            } else if (token.cancellable()) {
+                registration = token.register(this);
+            }
+        }
+
+        private static CompletableCancelToken latch(CancelToken token) {
+            if (token instanceof CompletableCancelToken) {
+                return (CompletableCancelToken) token;
+            }
+            // Combined and fan-in tokens latch into a token of their own, which the waiter joins directly
+            if (token instanceof CombinedPairCancelToken
+                    || token instanceof CombinedArrayCancelToken
+                    || token instanceof CombinedCancelToken
+                    || token instanceof FanInCancelToken) {
+                var stage = token.onCancelled();
+                if (stage instanceof CompletableCancelToken) {
+                    return (CompletableCancelToken) stage;
+                }
+            }
+            return null;
+        }
+
+        boolean detach() {
+            var registration = this.registration;
+            if (registration != null) {
+                this.registration = null;
+                return registration.unregister() || fired;
+            }
+            if (linked) {
+                linked = false;
+                return unregister() || fired;
+            }
+            return true;
+        }
+
+        @Override
+        void fire() {
+            // The epoch is read before the node is marked as reusable
+            selector.signal(epoch, index);
+            fired = true;
+        }
+
+        @Override
+        public void run() {
+            fire();
+        }
+    }
+}
@@ -31,8 +31,23 @@ public interface CancelSource extends CancelState {
      */
     void cancel();
 
+    /**
+     * Cancels immediately with the given reason, signaling all issued tokens.
+     * <p>
+     * The reason is reported by {@link CancelToken#reason()} and by the exception thrown from
+     * {@link CancelToken#checkCanceled()}. If the source is already cancelled, the original reason is kept.
+     * The default implementation ignores the reason and delegates to {@link #cancel()}.
+     *
+     * @param reason the cancellation reason
+     */
+    default void cancel(CancelReason reason) {
+        cancel();
+    }
+
     /**
      * Schedules cancellation after the given timeout in milliseconds.
+     * <p>
+     * Implementations cancel with {@link CancelReason#TIMEOUT}.
      *
      * @param timeout the delay before cancellation, in milliseconds
      */
@@ -40,6 +55,8 @@ public interface CancelSource extends CancelState {
 
     /**
      * Schedules cancellation after the given timeout with specified time unit.
+     * <p>
+     * Implementations cancel with {@link CancelReason#TIMEOUT}.
      *
      * @param timeout the delay before cancellation
      * @param unit the unit of the timeout parameter
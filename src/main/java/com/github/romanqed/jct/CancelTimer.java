@@ -0,0 +1,116 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shared timer driving delays and scheduled cancellations.
+ * <p>
+ * A single daemon thread keeps the timer queue; expired tasks are handed off to the default
+ * {@link CompletableFuture} executor, so callbacks never stall the timer. Cancelled entries are removed
+ * from the queue immediately, so abandoned delays do not retain their stages until expiration.
+ */
+final class CancelTimer {
+    private static final ScheduledThreadPoolExecutor TIMER;
+    private static final Executor ASYNC = new CompletableFuture<Void>().defaultExecutor();
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, task -> {
+            var ret = new Thread(task, "jct-timer");
+            ret.setDaemon(true);
+            return ret;
+        });
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private CancelTimer() {
+    }
+
+    static int pending() {
+        return TIMER.getQueue().size();
+    }
+
+    static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return TIMER.schedule(() -> ASYNC.execute(task), delay, unit);
+    }
+
+    static void cancelAfter(CompletableCancelToken token, long delay, TimeUnit unit) {
+        if (token.canceled()) {
+            return;
+        }
+        var task = schedule(() -> token.cancel(CancelReason.TIMEOUT), delay, unit);
+        // Drop the timer entry if the token is cancelled earlier
+        token.register(() -> task.cancel(false));
+    }
+
+    static AwaitableStage<Void> delay(long nanos, CancelToken token) {
+        var ret = new Delay(token);
+        ret.start(nanos);
+        return new CompletableAwaitableStage<>(ret.future);
+    }
+
+    static void sleep(long nanos, CancelToken token) throws InterruptedException {
+        token.checkCanceled();
+        var deadline = System.nanoTime() + nanos;
+        var thread = Thread.currentThread();
+        var registration = token.register(() -> LockSupport.unpark(thread));
+        try {
+            while (true) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                token.checkCanceled();
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                LockSupport.parkNanos(token, remaining);
+            }
+        } finally {
+            registration.unregister();
+        }
+    }
+
+    private static final class Delay implements Runnable {
+        final CompletableFuture<Void> future;
+        private final CancelToken token;
+        private volatile ScheduledFuture<?> task;
+        private volatile Registration registration;
+
+        private Delay(CancelToken token) {
+            this.future = new CompletableFuture<>();
+            this.token = token;
+        }
+
+        void start(long nanos) {
+            if (token.canceled()) {
+                future.completeExceptionally(new CancelledException(token.reason()));
+                return;
+            }
+            task = schedule(this, nanos, TimeUnit.NANOSECONDS);
+            var registration = token.register(this::cancel);
+            this.registration = registration;
+            // The delay may have elapsed before the registration was published
+            if (future.isDone()) {
+                registration.unregister();
+            }
+        }
+
+        private void cancel() {
+            if (future.completeExceptionally(new CancelledException(token.reason()))) {
+                task.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!future.complete(null)) {
+                return;
+            }
+            var registration = this.registration;
+            if (registration != null) {
+                registration.unregister();
+            }
+        }
+    }
+}
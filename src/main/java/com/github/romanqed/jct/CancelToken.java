@@ -21,14 +21,47 @@ public interface CancelToken extends CancelState {
      * Checks the cancellation status and throws an unchecked exception
      * if cancellation has been requested.
      *
-     * @throws CancellationException if the token has been cancelled
+     * @throws CancellationException if the token has been cancelled, typically a {@link CancelledException}
+     *                               carrying the cancellation reason
      */
     void checkCanceled();
 
+    /**
+     * Returns the reason this token was cancelled with.
+     * <p>
+     * Unlike {@link #checkCanceled()}, this method never throws, so the reason can be inspected
+     * without allocating an exception. The default implementation reports
+     * {@link CancelReason#UNSPECIFIED} for any cancelled token.
+     *
+     * @return the cancellation reason, or {@code null} if the token is not cancelled
+     */
+    default CancelReason reason() {
+        return canceled() ? CancelReason.UNSPECIFIED : null;
+    }
+
     /**
      * Returns a stage that completes when cancellation is requested.
      *
      * @return an {@link AwaitableStage} completed upon cancellation
      */
     AwaitableStage<Void> onCancelled();
+
+    /**
+     * Registers a callback to be invoked once when cancellation is requested.
+     * <p>
+     * If the token is already cancelled, the callback is invoked immediately in the calling thread.
+     * Unlike dependents of {@link #onCancelled()}, the callback can be removed with the returned
+     * {@link Registration} once it is no longer needed.
+     * <p>
+     * The default implementation attaches the callback to {@link #onCancelled()}; unregistering
+     * then releases the callback, but not the stage dependent holding it.
+     *
+     * @param action the callback to invoke on cancellation
+     * @return a {@link Registration} that removes the callback
+     */
+    default Registration register(Runnable action) {
+        var ret = new StageRegistration(action);
+        onCancelled().thenRun(ret);
+        return ret;
+    }
 }
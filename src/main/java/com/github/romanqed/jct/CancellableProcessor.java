@@ -0,0 +1,126 @@
+package com.github.romanqed.jct;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Processor} operator that passes items through unchanged and binds the stream to a {@link CancelToken}.
+ * <p>
+ * The processor accepts a single downstream subscriber, which is decorated with a {@link CancellableSubscriber}:
+ * token cancellation cancels the upstream subscription and fails the downstream, while downstream
+ * cancellation is propagated upstream and to the optional {@link CancelSource}.
+ *
+ * @param <T> the processed item type
+ */
+public final class CancellableProcessor<T> implements Flow.Processor<T, T> {
+    private final CancelToken token;
+    private final CancelSource source;
+    private volatile CancellableSubscriber<T> subscriber;
+    // Upstream state, guarded by this until a subscriber is connected
+    private Flow.Subscription subscription;
+    private boolean completed;
+    private Throwable error;
+
+    /**
+     * Creates a processor bound to the given token that also cancels the given source on downstream cancellation.
+     *
+     * @param token  the token that cancels the stream
+     * @param source the source to cancel when the downstream subscriber cancels, may be {@code null}
+     */
+    public CancellableProcessor(CancelToken token, CancelSource source) {
+        this.token = Objects.requireNonNull(token);
+        this.source = source;
+    }
+
+    /**
+     * Creates a processor bound to the given token.
+     *
+     * @param token the token that cancels the stream
+     */
+    public CancellableProcessor(CancelToken token) {
+        this(token, null);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        synchronized (this) {
+            if (this.subscriber == null) {
+                var decorated = new CancellableSubscriber<T>(subscriber, token, source);
+                this.subscriber = decorated;
+                if (subscription != null) {
+                    connect(decorated);
+                }
+                return;
+            }
+        }
+        subscriber.onSubscribe(EmptySubscription.SUBSCRIPTION);
+        subscriber.onError(new IllegalStateException("Processor supports only one subscriber"));
+    }
+
+    private void connect(CancellableSubscriber<T> subscriber) {
+        subscriber.onSubscribe(subscription);
+        if (error != null) {
+            subscriber.onError(error);
+        } else if (completed) {
+            subscriber.onComplete();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        synchronized (this) {
+            if (this.subscription == null) {
+                this.subscription = subscription;
+                var subscriber = this.subscriber;
+                if (subscriber != null) {
+                    connect(subscriber);
+                }
+                return;
+            }
+        }
+        subscription.cancel();
+    }
+
+    @Override
+    public void onNext(T item) {
+        var subscriber = this.subscriber;
+        if (subscriber != null) {
+            subscriber.onNext(item);
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        if (subscriber == null) {
+            error = throwable;
+        } else {
+            subscriber.onError(throwable);
+        }
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        if (subscriber == null) {
+            completed = true;
+        } else {
+            subscriber.onComplete();
+        }
+    }
+
+    private static final class EmptySubscription implements Flow.Subscription {
+        static final EmptySubscription SUBSCRIPTION = new EmptySubscription();
+
+        @Override
+        public void request(long n) {
+            // Do nothing
+        }
+
+        @Override
+        public void cancel() {
+            // Do nothing
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.romanqed.jct;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Wrapper around a {@link ScheduledExecutorService} that binds scheduled tasks to {@link CancelToken}s.
+ * <p>
+ * When the token fires, the task's {@link ScheduledFuture} is cancelled. If the wrapped executor is a
+ * {@link ScheduledThreadPoolExecutor}, its remove-on-cancel policy is enabled, so cancelled tasks are removed
+ * from the work queue immediately instead of piling up until their delay elapses. The token registration
+ * is released as soon as a one-shot task completes, a periodic task fails, or the returned future is cancelled.
+ */
+public final class CancellableScheduler {
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a wrapper around the given executor, enabling its remove-on-cancel policy where supported.
+     *
+     * @param executor the executor to schedule tasks on
+     */
+    public CancellableScheduler(ScheduledExecutorService executor) {
+        this.executor = Objects.requireNonNull(executor);
+        if (executor instanceof ScheduledThreadPoolExecutor) {
+            ((ScheduledThreadPoolExecutor) executor).setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    private ScheduledFuture<?> bind(Task task, ScheduledFuture<?> future, CancelToken token) {
+        task.future = future;
+        var registration = token.register(task::cancelByToken);
+        task.registration = registration;
+        // The task may have completed before the registration was published
+        if (task.done) {
+            registration.unregister();
+        }
+        return task;
+    }
+
+    /**
+     * Schedules a one-shot task that is cancelled when the token fires.
+     *
+     * @param task  the task to execute
+     * @param delay the delay before execution
+     * @param unit  the unit of the delay parameter
+     * @param token the token that cancels the task
+     * @return a {@link ScheduledFuture} representing the pending task
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit, CancelToken token) {
+        var ret = new Task(task, false);
+        return bind(ret, executor.schedule(ret, delay, unit), token);
+    }
+
+    /**
+     * Schedules a periodic task executed at a fixed rate until the token fires.
+     *
+     * @param task         the task to execute
+     * @param initialDelay the delay before the first execution
+     * @param period       the period between successive executions
+     * @param unit         the unit of the delay and period parameters
+     * @param token        the token that cancels the task
+     * @return a {@link ScheduledFuture} representing the pending task
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit,
+                                                  CancelToken token) {
+        var ret = new Task(task, true);
+        return bind(ret, executor.scheduleAtFixedRate(ret, initialDelay, period, unit), token);
+    }
+
+    /**
+     * Schedules a periodic task executed with a fixed delay between executions until the token fires.
+     *
+     * @param task         the task to execute
+     * @param initialDelay the delay before the first execution
+     * @param delay        the delay between the end of an execution and the start of the next one
+     * @param unit         the unit of the delay parameters
+     * @param token        the token that cancels the task
+     * @return a {@link ScheduledFuture} representing the pending task
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit,
+                                                     CancelToken token) {
+        var ret = new Task(task, true);
+        return bind(ret, executor.scheduleWithFixedDelay(ret, initialDelay, delay, unit), token);
+    }
+
+    /**
+     * Removes all cancelled tasks from the work queue of the wrapped executor, if it supports purging.
+     */
+    public void purge() {
+        if (executor instanceof ScheduledThreadPoolExecutor) {
+            ((ScheduledThreadPoolExecutor) executor).purge();
+        }
+    }
+
+    private static final class Task implements Runnable, ScheduledFuture<Object> {
+        private final Runnable task;
+        private final boolean periodic;
+        volatile ScheduledFuture<?> future;
+        volatile Registration registration;
+        volatile boolean done;
+
+        private Task(Runnable task, boolean periodic) {
+            this.task = task;
+            this.periodic = periodic;
+        }
+
+        private void release() {
+            done = true;
+            var registration = this.registration;
+            if (registration != null) {
+                registration.unregister();
+            }
+        }
+
+        void cancelByToken() {
+            done = true;
+            future.cancel(false);
+        }
+
+        @Override
+        public void run() {
+            var failed = true;
+            try {
+                task.run();
+                failed = false;
+            } finally {
+                if (failed || !periodic) {
+                    release();
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            release();
+            return future.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return future.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return future.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return future.compareTo(other);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.romanqed.jct;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} decorator that stops traversal once the given {@link CancelToken} is cancelled.
+ * <p>
+ * The token is checked once per batch of elements rather than per element, and no further splits are
+ * produced after cancellation, so parallel pipelines stop forking new tasks. Since traversal can end early,
+ * the {@link #SIZED} and {@link #SUBSIZED} characteristics of the underlying spliterator are not reported.
+ *
+ * @param <T> the type of elements returned by this spliterator
+ */
+public final class CancellableSpliterator<T> implements Spliterator<T> {
+    /**
+     * The default number of elements traversed between token checks.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final Spliterator<T> spliterator;
+    private final CancelToken token;
+    private final int batch;
+    private int remaining;
+
+    /**
+     * Creates a cancellable spliterator checking the token every {@code batch} elements.
+     *
+     * @param spliterator the spliterator to decorate
+     * @param token       the token that stops traversal
+     * @param batch       the number of elements traversed between token checks
+     */
+    public CancellableSpliterator(Spliterator<T> spliterator, CancelToken token, int batch) {
+        if (batch <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.spliterator = spliterator;
+        this.token = token;
+        this.batch = batch;
+    }
+
+    /**
+     * Creates a cancellable spliterator checking the token every {@link #DEFAULT_BATCH_SIZE} elements.
+     *
+     * @param spliterator the spliterator to decorate
+     * @param token       the token that stops traversal
+     */
+    public CancellableSpliterator(Spliterator<T> spliterator, CancelToken token) {
+        this(spliterator, token, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (remaining == 0) {
+            if (token.canceled()) {
+                return false;
+            }
+            remaining = batch;
+        }
+        --remaining;
+        return spliterator.tryAdvance(action);
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        var count = remaining;
+        while (true) {
+            if (count == 0) {
+                if (token.canceled()) {
+                    remaining = 0;
+                    return;
+                }
+                count = batch;
+            }
+            for (; count > 0; --count) {
+                if (!spliterator.tryAdvance(action)) {
+                    remaining = count;
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (token.canceled()) {
+            return null;
+        }
+        var split = spliterator.trySplit();
+        if (split == null) {
+            return null;
+        }
+        return new CancellableSpliterator<>(split, token, batch);
+    }
+
+    @Override
+    public long estimateSize() {
+        return spliterator.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return spliterator.characteristics() & ~(SIZED | SUBSIZED);
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return spliterator.getComparator();
+    }
+}
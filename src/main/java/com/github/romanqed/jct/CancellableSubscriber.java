@@ -0,0 +1,164 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Subscriber} decorator that binds a subscription to a {@link CancelToken}.
+ * <p>
+ * When the token is cancelled, the upstream subscription is cancelled, further demand is no longer
+ * requested and the downstream subscriber receives {@link Flow.Subscriber#onError(Throwable)} with a
+ * {@link CancelledException} carrying the token's reason. When the downstream subscriber cancels its subscription, the optional
+ * {@link CancelSource} is cancelled as well. The token registration is released as soon as the
+ * subscription terminates.
+ *
+ * @param <T> the subscribed item type
+ */
+public final class CancellableSubscriber<T> implements Flow.Subscriber<T>, Flow.Subscription {
+    private static final VarHandle DONE;
+    private static final VarHandle WIP;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            DONE = lookup.findVarHandle(CancellableSubscriber.class, "done", boolean.class);
+            WIP = lookup.findVarHandle(CancellableSubscriber.class, "wip", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Flow.Subscriber<? super T> downstream;
+    private final CancelToken token;
+    private final CancelSource source;
+    private volatile Flow.Subscription upstream;
+    private volatile Registration registration;
+    private volatile boolean done;
+    @SuppressWarnings("unused")
+    private volatile int wip;
+    private Throwable error;
+
+    /**
+     * Creates a subscriber decorator that also cancels the given source on downstream cancellation.
+     *
+     * @param downstream the subscriber to decorate
+     * @param token      the token that cancels the subscription
+     * @param source     the source to cancel when the downstream subscriber cancels, may be {@code null}
+     */
+    public CancellableSubscriber(Flow.Subscriber<? super T> downstream, CancelToken token, CancelSource source) {
+        this.downstream = Objects.requireNonNull(downstream);
+        this.token = Objects.requireNonNull(token);
+        this.source = source;
+    }
+
+    /**
+     * Creates a subscriber decorator bound to the given token.
+     *
+     * @param downstream the subscriber to decorate
+     * @param token      the token that cancels the subscription
+     */
+    public CancellableSubscriber(Flow.Subscriber<? super T> downstream, CancelToken token) {
+        this(downstream, token, null);
+    }
+
+    private boolean terminate() {
+        return DONE.compareAndSet(this, false, true);
+    }
+
+    private void release() {
+        var registration = this.registration;
+        if (registration != null) {
+            registration.unregister();
+        }
+    }
+
+    private void signal(Throwable error) {
+        this.error = error;
+        if ((int) WIP.getAndAdd(this, 1) == 0) {
+            emit();
+        }
+    }
+
+    private void emit() {
+        var error = this.error;
+        if (error == null) {
+            downstream.onComplete();
+        } else {
+            downstream.onError(error);
+        }
+    }
+
+    private void cancelByToken() {
+        if (!terminate()) {
+            return;
+        }
+        upstream.cancel();
+        signal(new CancelledException(token.reason()));
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        downstream.onSubscribe(this);
+        var registration = token.register(this::cancelByToken);
+        this.registration = registration;
+        if (done) {
+            registration.unregister();
+        }
+    }
+
+    @Override
+    public void onNext(T item) {
+        // A pending terminal signal holds the counter, so late items are dropped
+        if (done || !WIP.compareAndSet(this, 0, 1)) {
+            return;
+        }
+        downstream.onNext(item);
+        if ((int) WIP.getAndAdd(this, -1) != 1) {
+            emit();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        if (terminate()) {
+            release();
+            signal(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (terminate()) {
+            release();
+            signal(null);
+        }
+    }
+
+    @Override
+    public void request(long n) {
+        if (!done && !token.canceled()) {
+            upstream.request(n);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        if (!terminate()) {
+            return;
+        }
+        release();
+        upstream.cancel();
+        if (source != null) {
+            source.cancel();
+        }
+    }
+}
@@ -1,6 +1,18 @@
 package com.github.romanqed.jct;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility class providing factory methods and combinators for cancellation tokens and sources.
@@ -13,6 +25,24 @@ import java.util.concurrent.CompletableFuture;
  *     <li>Creating new {@link CancelSource} instances</li>
  *     <li>Obtaining a shared empty (non-cancellable) {@link CancelToken}</li>
  *     <li>Combining multiple cancellation tokens into a single source or token</li>
+ *     <li>Weakly linking short-lived tokens to long-lived ones</li>
+ *     <li>Fanning in thousands of tokens with constant-time polling</li>
+ *     <li>Propagating cancellation reasons through combined tokens and sources</li>
+ *     <li>Cancellable delays and sleeps driven by a shared timer</li>
+ *     <li>Terminating external processes on cancellation</li>
+ *     <li>Scheduling tasks that are removed from the scheduler queue on cancellation</li>
+ *     <li>Running blocking tasks on (virtual) threads interrupted on cancellation</li>
+ *     <li>Interrupting blocking code on cancellation within a scope</li>
+ *     <li>Waiting for any of several tokens with a single park</li>
+ *     <li>Asynchronous semaphores and mutexes dropping cancelled waiters</li>
+ *     <li>Coalescing concurrent loads cancelled only when every caller has left</li>
+ *     <li>Propagating cancellation and deadlines across process boundaries</li>
+ *     <li>Creating thread-confined sources for event loops</li>
+ *     <li>Mapping items asynchronously with bounded parallelism</li>
+ *     <li>Creating idle watchdog sources</li>
+ *     <li>Making streams stop early on cancellation</li>
+ *     <li>Creating groups of sources cancelled together</li>
+ *     <li>Creating registries for cancelling large numbers of operations by identifier</li>
  * </ul>
  *
  * <p>All methods are static and the class is not instantiable.
@@ -52,10 +82,11 @@ public final class Cancellation {
      */
     public static CancelToken combinedToken(CancelToken... tokens) {
         var future = new CompletableFuture<Void>();
+        Runnable action = () -> future.complete(null);
         for (var token : tokens) {
-            token.onCancelled().thenRun(() -> future.complete(null));
+            token.register(action);
         }
-        return new CombinedArrayCancelToken(tokens, new CompletableAwaitableStage<>(future));
+        return new CombinedArrayCancelToken(tokens, new CompletableCancelToken(future));
     }
 
     /**
@@ -67,10 +98,11 @@ public final class Cancellation {
      */
     public static CancelToken combinedToken(Iterable<CancelToken> tokens) {
         var future = new CompletableFuture<Void>();
+        Runnable action = () -> future.complete(null);
         for (var token : tokens) {
-            token.onCancelled().thenRun(() -> future.complete(null));
+            token.register(action);
         }
-        return new CombinedCancelToken(tokens, new CompletableAwaitableStage<>(future));
+        return new CombinedCancelToken(tokens, new CompletableCancelToken(future));
     }
 
     /**
@@ -83,9 +115,57 @@ public final class Cancellation {
      */
     public static CancelToken combinedToken(CancelToken first, CancelToken second) {
         var future = new CompletableFuture<Void>();
-        first.onCancelled().thenRun(() -> future.complete(null));
-        second.onCancelled().thenRun(() -> future.complete(null));
-        return new CombinedPairCancelToken(first, second, new CompletableAwaitableStage<>(future));
+        Runnable action = () -> future.complete(null);
+        first.register(action);
+        second.register(action);
+        return new CombinedPairCancelToken(first, second, new CompletableCancelToken(future));
+    }
+
+    /**
+     * Creates a combined {@link CancelToken} from multiple tokens, which is considered cancelled
+     * when any of the constituent tokens is cancelled, and is only weakly referenced by them.
+     * <p>
+     * Unlike {@link #combinedToken(CancelToken...)}, dropping the combined token without cancelling it
+     * lets it be garbage-collected even while the constituent tokens stay alive, which suits linking
+     * short-lived request tokens to long-lived ones. Registrations left on the constituent tokens
+     * are removed in batches during later weak combinations. Callbacks registered on an abandoned
+     * combined token are dropped along with it.
+     *
+     * @param tokens the tokens to combine
+     * @return a combined cancel token representing cancellation of any input token
+     */
+    public static CancelToken weakCombinedToken(CancelToken... tokens) {
+        var future = new CompletableFuture<Void>();
+        var ret = new CombinedArrayCancelToken(tokens, new CompletableCancelToken(future));
+        WeakLink.link(future, tokens);
+        return ret;
+    }
+
+    /**
+     * Creates a {@link FanInCancelToken} from a large number of tokens, which is considered cancelled
+     * when any of the constituent tokens is cancelled.
+     * <p>
+     * Prefer this over {@link #combinedToken(CancelToken...)} for thousands of inputs:
+     * polling is constant-time and all registrations can be detached at once.
+     *
+     * @param tokens the tokens to combine
+     * @return a fan-in cancel token representing cancellation of any input token
+     */
+    public static FanInCancelToken fanIn(CancelToken... tokens) {
+        return new FanInCancelToken(tokens);
+    }
+
+    /**
+     * Creates a {@link FanInCancelToken} from an iterable of tokens, which is considered cancelled
+     * when any of the constituent tokens is cancelled.
+     *
+     * @param tokens the tokens to combine
+     * @return a fan-in cancel token representing cancellation of any input token
+     */
+    public static FanInCancelToken fanIn(Iterable<CancelToken> tokens) {
+        var list = new ArrayList<CancelToken>();
+        tokens.forEach(list::add);
+        return new FanInCancelToken(list.toArray(new CancelToken[0]));
     }
 
     /**
@@ -97,16 +177,285 @@ public final class Cancellation {
         return new CompletableCancelSource(CompletableFuture::new);
     }
 
+    /**
+     * Wraps the given stream so that its traversal stops once the token is cancelled.
+     * <p>
+     * The token is checked once per batch of elements, and parallel streams stop splitting after cancellation.
+     * A terminal operation on the returned stream completes normally with the elements processed so far,
+     * so callers should check the token afterwards to tell a partial result from a complete one.
+     *
+     * @param stream the stream to wrap
+     * @param token  the token that stops traversal
+     * @param <T>    the type of stream elements
+     * @return a stream backed by a {@link CancellableSpliterator}
+     */
+    public static <T> Stream<T> stream(Stream<T> stream, CancelToken token) {
+        var spliterator = new CancellableSpliterator<>(stream.spliterator(), token);
+        return StreamSupport.stream(spliterator, stream.isParallel()).onClose(stream::close);
+    }
+
+    /**
+     * Returns a stage that completes after the given delay, or fails with a {@link CancelledException}
+     * as soon as the token is cancelled.
+     * <p>
+     * Delays are driven by a single shared timer; the timer entry is removed when the token is cancelled,
+     * so abandoned delays do not linger until expiration. Dependent actions run on the default
+     * {@link CompletableFuture} executor.
+     *
+     * @param duration the delay duration
+     * @param token    the token that cancels the delay
+     * @return an {@link AwaitableStage} completed after the delay
+     */
+    public static AwaitableStage<Void> delay(Duration duration, CancelToken token) {
+        return CancelTimer.delay(duration.toNanos(), token);
+    }
+
+    /**
+     * Blocks the calling thread for the given duration, returning early with a {@link CancelledException}
+     * as soon as the token is cancelled.
+     * <p>
+     * The thread is parked rather than sleeping, so a virtual thread releases its carrier while waiting.
+     *
+     * @param duration the sleep duration
+     * @param token    the token that cancels the sleep
+     * @throws InterruptedException if the calling thread is interrupted while sleeping
+     * @throws CancelledException   if the token is cancelled before the duration elapses
+     */
+    public static void sleep(Duration duration, CancelToken token) throws InterruptedException {
+        CancelTimer.sleep(duration.toNanos(), token);
+    }
+
+    /**
+     * Binds the given process to a token, so it is terminated when the token is cancelled.
+     * <p>
+     * On cancellation, the process and its descendants are destroyed gracefully and, if still alive after
+     * the grace period, forcibly. The token registration is removed when the process exits on its own.
+     *
+     * @param process     the process to bind
+     * @param token       the token that terminates the process
+     * @param gracePeriod the time given to the process to exit before it is destroyed forcibly
+     * @return an {@link AwaitableStage} completed with the exit code of the process
+     */
+    public static AwaitableStage<Integer> bind(Process process, CancelToken token, Duration gracePeriod) {
+        var ret = new ProcessBinding(process, gracePeriod.toNanos());
+        ret.bind(token);
+        return new CompletableAwaitableStage<>(ret.result);
+    }
+
+    /**
+     * Opens an {@link InterruptScope} interrupting the current thread if the token fires while the scope is open.
+     * <p>
+     * Use with try-with-resources around blocking calls that only respond to {@link Thread#interrupt()}:
+     * <pre>{@code
+     * try (var scope = Cancellation.interruptOnCancel(token)) {
+     *     statement.executeQuery();
+     * }
+     * }</pre>
+     *
+     * @param token the token that interrupts the current thread
+     * @return an open interrupt scope bound to the current thread
+     */
+    public static InterruptScope interruptOnCancel(CancelToken token) {
+        return new InterruptScope(token);
+    }
+
+    /**
+     * Executes the task on a new thread, which is interrupted when the token fires.
+     * <p>
+     * On Java 21 and later the task runs on a virtual thread, so millions of blocked tasks can be unwound
+     * by cancellation without exhausting platform threads; earlier runtimes use a daemon platform thread.
+     * If the task fails after the token has fired, the returned stage fails with a {@link CancelledException}
+     * carrying the token's reason, with the original error as its cause.
+     *
+     * @param task  the task to execute
+     * @param token the token that interrupts the task
+     * @param <T>   the result type
+     * @return an {@link AwaitableStage} completed with the task's result
+     */
+    public static <T> AwaitableStage<T> execute(Callable<T> task, CancelToken token) {
+        var ret = new BoundTask<>(task, token);
+        if (token.canceled()) {
+            ret.result.completeExceptionally(new CancelledException(token.reason()));
+        } else {
+            Threads.start(ret);
+        }
+        return new CompletableAwaitableStage<>(ret.result);
+    }
+
+    /**
+     * Creates a {@link CancellableScheduler} scheduling token-bound tasks on the given executor.
+     * <p>
+     * If the executor is a {@link java.util.concurrent.ScheduledThreadPoolExecutor}, its remove-on-cancel
+     * policy is enabled, so tasks cancelled by their tokens are removed from the work queue immediately.
+     *
+     * @param executor the executor to schedule tasks on
+     * @return a new cancellable scheduler instance
+     */
+    public static CancellableScheduler scheduler(ScheduledExecutorService executor) {
+        return new CancellableScheduler(executor);
+    }
+
+    /**
+     * Creates a new {@link ConfinedCancelSource} confined to the current thread, which must be the only thread
+     * of the given executor, such as an event loop.
+     *
+     * @param executor the executor owning the current thread
+     * @return a new confined source instance
+     */
+    public static ConfinedCancelSource confined(Executor executor) {
+        return new ConfinedCancelSource(executor);
+    }
+
+    /**
+     * Maps items asynchronously with at most {@code parallelism} items in flight, collecting results in input order.
+     * <p>
+     * Each item is mapped under its own child token. The pipeline stops on the first error or when the token
+     * fires: no further items are pulled, in-flight items have their child tokens cancelled, and the returned
+     * stage fails immediately. All registrations are released once the pipeline ends.
+     *
+     * @param items       the items to map
+     * @param parallelism the maximum number of items mapped concurrently
+     * @param mapper      the function mapping an item under the given child token
+     * @param token       the token that stops the pipeline
+     * @param <T>         the input item type
+     * @param <R>         the mapped result type
+     * @return an {@link AwaitableStage} completed with the results in input order
+     */
+    public static <T, R> AwaitableStage<List<R>> mapAsync(
+            Iterable<? extends T> items,
+            int parallelism,
+            BiFunction<? super T, ? super CancelToken, ? extends CompletionStage<? extends R>> mapper,
+            CancelToken token) {
+        var results = new ArrayList<R>();
+        var ret = new AsyncMapper<T, R>(items.iterator(), parallelism, mapper, (value, index) -> {
+            while (results.size() <= index) {
+                results.add(null);
+            }
+            results.set((int) index, value);
+        }, token);
+        // Relay the outcome as is, so cancellation is not wrapped into a completion exception
+        var future = new CompletableFuture<List<R>>();
+        ret.result.whenComplete((v, e) -> {
+            if (e == null) {
+                future.complete(results);
+            } else {
+                future.completeExceptionally(e);
+            }
+        });
+        ret.start();
+        return new CompletableAwaitableStage<>(future);
+    }
+
+    /**
+     * Maps items asynchronously with at most {@code parallelism} items in flight, passing results
+     * to the consumer in completion order.
+     * <p>
+     * The consumer is never invoked concurrently and the pipeline keeps no results, so memory is bounded
+     * by the parallelism regardless of the number of items. Cancellation and error handling are the same as
+     * for {@link #mapAsync(Iterable, int, BiFunction, CancelToken)}.
+     *
+     * @param items       the items to map
+     * @param parallelism the maximum number of items mapped concurrently
+     * @param mapper      the function mapping an item under the given child token
+     * @param consumer    the consumer receiving results in completion order
+     * @param token       the token that stops the pipeline
+     * @param <T>         the input item type
+     * @param <R>         the mapped result type
+     * @return an {@link AwaitableStage} completed when all items have been mapped and consumed
+     */
+    public static <T, R> AwaitableStage<Void> mapAsync(
+            Iterable<? extends T> items,
+            int parallelism,
+            BiFunction<? super T, ? super CancelToken, ? extends CompletionStage<? extends R>> mapper,
+            Consumer<? super R> consumer,
+            CancelToken token) {
+        var ret = new AsyncMapper<T, R>(items.iterator(), parallelism, mapper, (value, index) -> consumer.accept(value), token);
+        ret.start();
+        return new CompletableAwaitableStage<>(ret.result);
+    }
+
+    /**
+     * Creates a new {@link WatchdogCancelSource} that cancels when it has not been
+     * {@link WatchdogCancelSource#touch() touched} for the given idle timeout.
+     *
+     * @param timeout the idle timeout
+     * @param unit    the unit of the timeout parameter
+     * @return a new watchdog source instance
+     */
+    public static WatchdogCancelSource watchdog(long timeout, TimeUnit unit) {
+        return new WatchdogCancelSource(timeout, unit);
+    }
+
+    /**
+     * Creates a new {@link CancelSelector} for waiting on any of several tokens with a single park.
+     *
+     * @return a new selector instance
+     */
+    public static CancelSelector selector() {
+        return new CancelSelector();
+    }
+
+    /**
+     * Creates a new {@link AsyncSemaphore} with the given number of permits.
+     *
+     * @param permits the initial number of permits
+     * @return a new semaphore instance
+     */
+    public static AsyncSemaphore semaphore(int permits) {
+        return new AsyncSemaphore(permits);
+    }
+
+    /**
+     * Creates a new {@link AsyncSemaphore} with a single permit, serving as an asynchronous mutex.
+     *
+     * @return a new mutex instance
+     */
+    public static AsyncSemaphore mutex() {
+        return new AsyncSemaphore(1);
+    }
+
+    /**
+     * Creates a new {@link SingleFlight} loader coalescing concurrent loads of the same key.
+     *
+     * @param loader the function starting the load of a key, bound to the token of the shared load
+     * @param <K>    the key type
+     * @param <V>    the loaded value type
+     * @return a new single-flight loader instance
+     */
+    public static <K, V> SingleFlight<K, V> singleFlight(
+            BiFunction<? super K, ? super CancelToken, ? extends CompletionStage<? extends V>> loader) {
+        return new SingleFlight<>(loader);
+    }
+
+    /**
+     * Creates a new empty {@link CancelGroup} for cancelling or resetting many sources at once.
+     *
+     * @return a new cancel group instance
+     */
+    public static CancelGroup group() {
+        return new CancelGroup();
+    }
+
+    /**
+     * Creates a new {@link CancelRegistry} for cancelling operations by {@code long} identifiers.
+     *
+     * @return a new cancel registry instance
+     */
+    public static CancelRegistry registry() {
+        return new CancelRegistry();
+    }
+
     /**
      * Combines cancellation signals from multiple {@link CancelToken} instances into the given {@link CancelSource}.
-     * When any token is cancelled, the source is cancelled as well.
+     * When any token is cancelled, the source is cancelled as well, with the reason of the cancelled token.
      *
      * @param source the cancel source to be cancelled on any token cancellation
      * @param tokens the tokens to observe for cancellation
      */
     public static void combine(CancelSource source, CancelToken... tokens) {
+        Runnable action = () -> source.cancel(reason(tokens));
         for (var token : tokens) {
-            token.onCancelled().thenRun(source::cancel);
+            token.register(action);
         }
     }
 
@@ -125,14 +474,15 @@ public final class Cancellation {
 
     /**
      * Combines cancellation signals from an iterable of {@link CancelToken} into the given {@link CancelSource}.
-     * When any token is cancelled, the source is cancelled as well.
+     * When any token is cancelled, the source is cancelled as well, with the reason of the cancelled token.
      *
      * @param source the cancel source to be cancelled on any token cancellation
      * @param tokens the iterable of tokens to observe for cancellation
      */
     public static void combine(CancelSource source, Iterable<CancelToken> tokens) {
+        Runnable action = () -> source.cancel(reason(tokens));
         for (var token : tokens) {
-            token.onCancelled().thenRun(source::cancel);
+            token.register(action);
         }
     }
 
@@ -148,4 +498,24 @@ public final class Cancellation {
         combine(ret, tokens);
         return ret;
     }
+
+    static CancelReason reason(CancelToken[] tokens) {
+        for (var token : tokens) {
+            var ret = token.reason();
+            if (ret != null) {
+                return ret;
+            }
+        }
+        return CancelReason.UNSPECIFIED;
+    }
+
+    static CancelReason reason(Iterable<CancelToken> tokens) {
+        for (var token : tokens) {
+            var ret = token.reason();
+            if (ret != null) {
+                return ret;
+            }
+        }
+        return CancelReason.UNSPECIFIED;
+    }
 }
@@ -0,0 +1,32 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * {@link CancellationException} thrown by {@link CancelToken#checkCanceled()}, carrying the {@link CancelReason}
+ * the token was cancelled with.
+ */
+public final class CancelledException extends CancellationException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient CancelReason reason;
+
+    /**
+     * Creates a new exception for the given cancellation reason.
+     *
+     * @param reason the reason the token was cancelled with
+     */
+    public CancelledException(CancelReason reason) {
+        super("Token is cancelled");
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the reason the token was cancelled with.
+     *
+     * @return the cancellation reason
+     */
+    public CancelReason reason() {
+        return reason;
+    }
+}
@@ -48,8 +48,28 @@ public final class CombinedCancelToken implements CancelToken {
         }
     }
 
+    @Override
+    public CancelReason reason() {
+        for (var token : tokens) {
+            var ret = token.reason();
+            if (ret != null) {
+                return ret;
+            }
+        }
+        return null;
+    }
+
     @Override
     public AwaitableStage<Void> onCancelled() {
         return stage;
     }
+
+    @Override
+    public Registration register(Runnable action) {
+        // Join the callback list of the stage token, so unregistering leaves no stage dependent behind
+        if (stage instanceof CancelToken) {
+            return ((CancelToken) stage).register(action);
+        }
+        return CancelToken.super.register(action);
+    }
 }
@@ -40,8 +40,23 @@ public final class CombinedPairCancelToken implements CancelToken {
         second.checkCanceled();
     }
 
+    @Override
+    public CancelReason reason() {
+        var ret = first.reason();
+        return ret == null ? second.reason() : ret;
+    }
+
     @Override
     public AwaitableStage<Void> onCancelled() {
         return stage;
     }
+
+    @Override
+    public Registration register(Runnable action) {
+        // Join the callback list of the stage token, so unregistering leaves no stage dependent behind
+        if (stage instanceof CancelToken) {
+            return ((CancelToken) stage).register(action);
+        }
+        return CancelToken.super.register(action);
+    }
 }
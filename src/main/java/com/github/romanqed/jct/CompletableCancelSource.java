@@ -1,5 +1,6 @@
 package com.github.romanqed.jct;
 
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -7,11 +8,11 @@ import java.util.function.Supplier;
 /**
  * {@link CancelSource} implementation based on {@link CompletableFuture}.
  * <p>
- * Supports cancellation, resetting, and cancellation with timeout.
+ * Supports cancellation with a reason, resetting, and cancellation with timeout.
  */
 public final class CompletableCancelSource implements CancelSource {
     private final Supplier<CompletableFuture<Void>> supplier;
-    private volatile State state;
+    private volatile CompletableCancelToken token;
 
     /**
      * Creates a new {@code CompletableCancelSource} with the given
@@ -21,46 +22,41 @@ public final class CompletableCancelSource implements CancelSource {
      */
     public CompletableCancelSource(Supplier<CompletableFuture<Void>> supplier) {
         this.supplier = supplier;
-        this.state = new State(supplier.get());
+        this.token = new CompletableCancelToken(supplier.get());
     }
 
     @Override
     public CancelToken token() {
-        return state.token;
+        return token;
     }
 
     @Override
     public void reset() {
-        state = new State(supplier.get());
+        token = new CompletableCancelToken(supplier.get());
     }
 
     @Override
     public void cancel() {
-        state.future.complete(null);
+        token.cancel(CancelReason.UNSPECIFIED);
+    }
+
+    @Override
+    public void cancel(CancelReason reason) {
+        token.cancel(Objects.requireNonNull(reason));
     }
 
     @Override
     public void cancelAfter(long timeout) {
-        state.future.completeOnTimeout(null, timeout, TimeUnit.MILLISECONDS);
+        cancelAfter(timeout, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void cancelAfter(long timeout, TimeUnit unit) {
-        state.future.completeOnTimeout(null, timeout, unit);
+        CancelTimer.cancelAfter(token, timeout, unit);
     }
 
     @Override
     public boolean canceled() {
-        return state.future.isDone();
-    }
-
-    private static final class State {
-        final CompletableFuture<Void> future;
-        final CompletableCancelToken token;
-
-        private State(CompletableFuture<Void> future) {
-            this.future = future;
-            this.token = new CompletableCancelToken(future);
-        }
+        return token.future.isDone();
     }
 }
@@ -1,16 +1,39 @@
 package com.github.romanqed.jct;
 
-import java.util.concurrent.CancellationException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * {@link CancelToken} implementation based on {@link CompletableFuture}.
  * <p>
  * Supports checking cancellation and awaiting cancellation completion.
+ * The token serves as its own cancellation stage, so no separate stage object is allocated.
+ * Callbacks added with {@link #register(Runnable)} are kept in a list owned by the token,
+ * so unregistering removes them in constant time.
+ * <p>
+ * The cancellation reason is published before the future is completed, so it is visible
+ * to every thread that observes the token as cancelled.
  */
-public final class CompletableCancelToken implements CancelToken {
-    private final CompletableFuture<Void> future;
-    private final CompletableAwaitableStage<Void> stage;
+public final class CompletableCancelToken extends FutureAwaitableStage<Void> implements CancelToken {
+    private static final VarHandle REASON;
+    // List head sentinels: the completion hook is installed and the list is empty, or the list has fired
+    private static final TokenRegistration EMPTY = new TokenRegistration(null);
+    private static final TokenRegistration FIRED = new TokenRegistration(null);
+
+    static {
+        try {
+            REASON = MethodHandles.lookup().findVarHandle(CompletableCancelToken.class, "reason", CancelReason.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private volatile CancelReason reason;
+    // Callback list head or sentinel, guarded by this; null until the completion hook is installed
+    private TokenRegistration head;
 
     /**
      * Creates a new token backed by the given {@link CompletableFuture}.
@@ -18,8 +41,24 @@ public final class CompletableCancelToken implements CancelToken {
      * @param future the future representing cancellation completion
      */
     public CompletableCancelToken(CompletableFuture<Void> future) {
-        this.future = future;
-        this.stage = new CompletableAwaitableStage<>(future);
+        super(future);
+        var detector = LeakDetector.installed;
+        if (detector != null) {
+            detector.created(this);
+        }
+    }
+
+    boolean cancel(CancelReason reason) {
+        if (future.isDone()) {
+            return false;
+        }
+        if (!REASON.compareAndSet(this, null, reason)) {
+            // The winner may not have completed the future yet, and the token must be cancelled on return
+            future.complete(null);
+            return false;
+        }
+        future.complete(null);
+        return true;
     }
 
     @Override
@@ -35,12 +74,148 @@ public final class CompletableCancelToken implements CancelToken {
     @Override
     public void checkCanceled() {
         if (future.isDone()) {
-            throw new CancellationException("Token is cancelled");
+            throw new CancelledException(reason());
+        }
+    }
+
+    @Override
+    public CancelReason reason() {
+        if (!future.isDone()) {
+            return null;
         }
+        var ret = reason;
+        // The future was completed directly, bypassing the source
+        return ret == null ? CancelReason.UNSPECIFIED : ret;
+    }
+
+    @Override
+    <U> AwaitableStage<U> dependent(CompletableFuture<U> dependent) {
+        var detector = LeakDetector.installed;
+        if (detector != null) {
+            detector.dependentAdded(this);
+        }
+        return super.dependent(dependent);
     }
 
     @Override
     public AwaitableStage<Void> onCancelled() {
-        return stage;
+        return this;
+    }
+
+    @Override
+    public Registration register(Runnable action) {
+        var ret = new TokenRegistration(action);
+        if (link(ret)) {
+            return ret;
+        }
+        action.run();
+        return EmptyRegistration.REGISTRATION;
+    }
+
+    boolean link(TokenRegistration node) {
+        boolean hook;
+        synchronized (this) {
+            var first = head;
+            if (first == FIRED) {
+                return false;
+            }
+            hook = first == null;
+            if (hook || first == EMPTY) {
+                node.prev = node;
+                node.next = node;
+                head = node;
+            } else {
+                var last = first.prev;
+                node.prev = last;
+                node.next = first;
+                last.next = node;
+                first.prev = node;
+            }
+            node.owner = this;
+        }
+        if (hook) {
+            future.whenComplete((v, e) -> fire());
+        }
+        var detector = LeakDetector.installed;
+        if (detector != null) {
+            detector.registered(this);
+        }
+        return true;
+    }
+
+    boolean unlink(TokenRegistration node) {
+        synchronized (this) {
+            if (node.owner != this) {
+                return false;
+            }
+            detach(node);
+        }
+        var detector = LeakDetector.installed;
+        if (detector != null) {
+            detector.unregistered(this);
+        }
+        return true;
+    }
+
+    private void detach(TokenRegistration node) {
+        var next = node.next;
+        if (next == node) {
+            head = EMPTY;
+        } else {
+            var prev = node.prev;
+            prev.next = next;
+            next.prev = prev;
+            if (head == node) {
+                head = next;
+            }
+        }
+        node.owner = null;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private void fire() {
+        var detector = LeakDetector.installed;
+        if (detector != null) {
+            detector.fired(this);
+        }
+        TokenRegistration first;
+        synchronized (this) {
+            first = head;
+            if (first == FIRED) {
+                return;
+            }
+            head = FIRED;
+            if (first == null || first == EMPTY) {
+                return;
+            }
+            // Detach nodes under the lock, so racing unregister calls report them as fired
+            var node = first;
+            do {
+                node.owner = null;
+                node = node.next;
+            } while (node != first);
+            first.prev.next = null;
+        }
+        Throwable error = null;
+        var node = first;
+        while (node != null) {
+            var next = node.next;
+            node.prev = null;
+            node.next = null;
+            try {
+                node.fire();
+            } catch (Throwable e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+            node = next;
+        }
+        if (error != null) {
+            throw new CompletionException(error);
+        }
     }
 }
@@ -0,0 +1,111 @@
+package com.github.romanqed.jct;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CancelSource} implementation confined to a single-threaded executor, such as an event loop.
+ * <p>
+ * Issued {@link ConfinedCancelToken}s keep their state in plain fields, so they are cheap to poll and
+ * register on from the owner thread. Cancellation requested from any other thread, including scheduled
+ * cancellation, is handed off to the owning executor, so callbacks always run on the owner thread.
+ * The tokens still implement {@link CancelToken} and can be combined with other tokens on the owner thread.
+ */
+public final class ConfinedCancelSource implements CancelSource {
+    private final Executor executor;
+    private final Thread owner;
+    private ConfinedCancelToken token;
+
+    /**
+     * Creates a new source confined to the current thread, which must be the only thread of the given executor.
+     *
+     * @param executor the executor owning the current thread, used to hand off cross-thread cancellation
+     */
+    public ConfinedCancelSource(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+        this.owner = Thread.currentThread();
+        this.token = new ConfinedCancelToken(owner);
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Source is confined to thread " + owner.getName());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Must be called from the owner thread.
+     */
+    @Override
+    public CancelToken token() {
+        checkOwner();
+        return token;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Must be called from the owner thread.
+     */
+    @Override
+    public void reset() {
+        checkOwner();
+        token = new ConfinedCancelToken(owner);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Can be called from any thread; outside the owner thread, the cancellation is handed off to the owning executor
+     * and targets the token that is current when the hand-off runs.
+     */
+    @Override
+    public void cancel() {
+        cancel(CancelReason.UNSPECIFIED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Can be called from any thread; outside the owner thread, the cancellation is handed off to the owning executor
+     * and targets the token that is current when the hand-off runs.
+     */
+    @Override
+    public void cancel(CancelReason reason) {
+        Objects.requireNonNull(reason);
+        if (Thread.currentThread() == owner) {
+            token.cancel(reason);
+        } else {
+            executor.execute(() -> token.cancel(reason));
+        }
+    }
+
+    @Override
+    public void cancelAfter(long timeout) {
+        cancelAfter(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Can be called from any thread; the timeout applies to the token that is current on the owner thread
+     * when the timer is armed.
+     */
+    @Override
+    public void cancelAfter(long timeout, TimeUnit unit) {
+        if (Thread.currentThread() != owner) {
+            executor.execute(() -> cancelAfter(timeout, unit));
+            return;
+        }
+        var token = this.token;
+        CancelTimer.schedule(() -> executor.execute(() -> token.cancel(CancelReason.TIMEOUT)), timeout, unit);
+    }
+
+    @Override
+    public boolean canceled() {
+        return token.canceled();
+    }
+}
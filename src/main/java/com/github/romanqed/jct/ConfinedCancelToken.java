@@ -0,0 +1,184 @@
+package com.github.romanqed.jct;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link CancelToken} implementation confined to the thread of a {@link ConfinedCancelSource}.
+ * <p>
+ * State is kept in plain fields and callbacks in a plain array, so polling and registration
+ * cost no volatile accesses or atomic operations. Callbacks can only be registered and unregistered
+ * from the owner thread; polling from other threads is allowed, but may observe cancellation late.
+ */
+public final class ConfinedCancelToken implements CancelToken {
+    private static final Node[] EMPTY = new Node[0];
+
+    private final Thread owner;
+    private boolean canceled;
+    private CancelReason reason;
+    private Node[] nodes;
+    private int size;
+    private int holes;
+    private CompletableFuture<Void> future;
+
+    ConfinedCancelToken(Thread owner) {
+        this.owner = owner;
+        this.nodes = EMPTY;
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Token is confined to thread " + owner.getName());
+        }
+    }
+
+    private void add(Node node) {
+        if (size == nodes.length) {
+            if (holes > size / 2) {
+                compact();
+            } else {
+                nodes = Arrays.copyOf(nodes, Math.max(size * 2, 4));
+            }
+        }
+        node.index = size;
+        nodes[size++] = node;
+    }
+
+    private void compact() {
+        var count = 0;
+        for (var i = 0; i < size; ++i) {
+            var node = nodes[i];
+            if (node != null) {
+                node.index = count;
+                nodes[count++] = node;
+            }
+        }
+        Arrays.fill(nodes, count, size, null);
+        size = count;
+        holes = 0;
+    }
+
+    void cancel(CancelReason reason) {
+        if (canceled) {
+            return;
+        }
+        canceled = true;
+        this.reason = reason;
+        var nodes = this.nodes;
+        var size = this.size;
+        this.nodes = EMPTY;
+        this.size = 0;
+        // Detach all nodes before firing, so callbacks unregistering others see them as fired
+        for (var i = 0; i < size; ++i) {
+            var node = nodes[i];
+            if (node != null) {
+                node.owner = null;
+            }
+        }
+        Throwable error = null;
+        for (var i = 0; i < size; ++i) {
+            var node = nodes[i];
+            if (node == null) {
+                continue;
+            }
+            try {
+                node.action.run();
+            } catch (Throwable e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (future != null) {
+            future.complete(null);
+        }
+        if (error != null) {
+            throw new CompletionException(error);
+        }
+    }
+
+    @Override
+    public boolean canceled() {
+        return canceled;
+    }
+
+    @Override
+    public boolean cancellable() {
+        return true;
+    }
+
+    @Override
+    public void checkCanceled() {
+        if (canceled) {
+            throw new CancelledException(reason);
+        }
+    }
+
+    @Override
+    public CancelReason reason() {
+        return reason;
+    }
+
+    /**
+     * Returns a stage that completes when cancellation is requested.
+     * <p>
+     * The stage is created on first use and can be awaited from any thread.
+     * Must be called from the owner thread.
+     *
+     * @return an {@link AwaitableStage} completed upon cancellation
+     */
+    @Override
+    public AwaitableStage<Void> onCancelled() {
+        checkOwner();
+        if (future == null) {
+            future = canceled ? CompletableFuture.completedFuture(null) : new CompletableFuture<>();
+        }
+        return new CompletableAwaitableStage<>(future);
+    }
+
+    /**
+     * Registers a callback to be invoked on the owner thread once when cancellation is requested.
+     * Must be called from the owner thread.
+     *
+     * @param action the callback to invoke on cancellation
+     * @return a {@link Registration} that removes the callback, usable from the owner thread only
+     */
+    @Override
+    public Registration register(Runnable action) {
+        checkOwner();
+        if (canceled) {
+            action.run();
+            return EmptyRegistration.REGISTRATION;
+        }
+        var ret = new Node(this, action);
+        add(ret);
+        return ret;
+    }
+
+    private static final class Node implements Registration {
+        final Runnable action;
+        ConfinedCancelToken owner;
+        int index;
+
+        private Node(ConfinedCancelToken owner, Runnable action) {
+            this.owner = owner;
+            this.action = action;
+        }
+
+        @Override
+        public boolean unregister() {
+            var owner = this.owner;
+            if (owner == null) {
+                return false;
+            }
+            owner.checkOwner();
+            owner.nodes[index] = null;
+            ++owner.holes;
+            this.owner = null;
+            return true;
+        }
+    }
+}
@@ -23,6 +23,11 @@ public final class EmptyCancelToken implements CancelToken {
         return EmptyAwaitableStage.STAGE;
     }
 
+    @Override
+    public Registration register(Runnable action) {
+        return EmptyRegistration.REGISTRATION;
+    }
+
     @Override
     public boolean canceled() {
         return false;
@@ -0,0 +1,15 @@
+package com.github.romanqed.jct;
+
+/**
+ * An immutable {@link Registration} that has nothing to remove.
+ * <p>
+ * Returned for callbacks that can never be invoked or have already been invoked.
+ */
+public final class EmptyRegistration implements Registration {
+    public static final EmptyRegistration REGISTRATION = new EmptyRegistration();
+
+    @Override
+    public boolean unregister() {
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.romanqed.jct;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link Backoff} implementation growing the delay exponentially up to a limit, with random jitter.
+ * <p>
+ * The base delay for attempt {@code n} is {@code initial * multiplier^(n - 1)}, capped at {@code max}.
+ * The returned delay is drawn uniformly from {@code [base * (1 - jitter), base]}, so concurrent clients
+ * retrying after a common failure do not retry in lockstep.
+ */
+public final class ExponentialBackoff implements Backoff {
+    private final long initial;
+    private final long max;
+    private final double multiplier;
+    private final double jitter;
+
+    /**
+     * Creates a new exponential back-off policy.
+     *
+     * @param initial    the delay after the first failed attempt
+     * @param max        the maximum delay
+     * @param multiplier the factor the delay grows by after each failed attempt, at least 1
+     * @param jitter     the fraction of the delay that is randomized, from 0 to 1
+     */
+    public ExponentialBackoff(Duration initial, Duration max, double multiplier, double jitter) {
+        if (initial.isNegative() || max.compareTo(initial) < 0) {
+            throw new IllegalArgumentException("Initial delay must not be negative or exceed the maximum delay");
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Multiplier must be at least 1");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1");
+        }
+        this.initial = initial.toNanos();
+        this.max = max.toNanos();
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Creates a new exponential back-off policy doubling the delay, with full jitter.
+     *
+     * @param initial the delay after the first failed attempt
+     * @param max     the maximum delay
+     */
+    public ExponentialBackoff(Duration initial, Duration max) {
+        this(initial, max, 2, 1);
+    }
+
+    @Override
+    public long delay(int attempt) {
+        var base = Math.min(initial * Math.pow(multiplier, attempt - 1), max);
+        if (jitter == 0) {
+            return (long) base;
+        }
+        return (long) (base * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link CancelToken} combining a large number of input tokens, which is considered cancelled
+ * when any of them is cancelled.
+ * <p>
+ * Unlike {@link Cancellation#combinedToken(Iterable)}, a single shared callback is registered on all inputs
+ * and the combined state is latched into one token, so polling is constant-time regardless of the number of inputs.
+ * Once the token fires or is {@link #close() closed}, its registrations are detached from all inputs at once.
+ * The {@link CancelReason} of the first cancelled input is latched when the token fires.
+ */
+public final class FanInCancelToken implements CancelToken, AutoCloseable {
+    private final CancelToken[] tokens;
+    private final CompletableCancelToken token;
+    private final Registration[] registrations;
+    private final boolean cancellable;
+    private volatile boolean ready;
+
+    /**
+     * Creates a fan-in token over the given input tokens.
+     *
+     * @param tokens the tokens to combine
+     */
+    public FanInCancelToken(CancelToken[] tokens) {
+        this.tokens = tokens;
+        this.token = new CompletableCancelToken(new CompletableFuture<>());
+        this.registrations = new Registration[tokens.length];
+        var cancellable = false;
+        Runnable trigger = this::trigger;
+        for (var i = 0; i < tokens.length; ++i) {
+            var input = tokens[i];
+            cancellable |= input.cancellable();
+            registrations[i] = input.register(trigger);
+        }
+        this.cancellable = cancellable;
+        ready = true;
+        if (token.canceled()) {
+            detach();
+        }
+    }
+
+    private void trigger() {
+        // Inputs firing after the first one find the token already cancelled
+        if (!token.canceled() && token.cancel(Cancellation.reason(tokens)) && ready) {
+            detach();
+        }
+    }
+
+    private void detach() {
+        for (var registration : registrations) {
+            if (registration != null) {
+                registration.unregister();
+            }
+        }
+    }
+
+    @Override
+    public boolean canceled() {
+        return token.canceled();
+    }
+
+    @Override
+    public boolean cancellable() {
+        return cancellable;
+    }
+
+    @Override
+    public void checkCanceled() {
+        token.checkCanceled();
+    }
+
+    @Override
+    public CancelReason reason() {
+        return token.reason();
+    }
+
+    @Override
+    public AwaitableStage<Void> onCancelled() {
+        return token;
+    }
+
+    @Override
+    public Registration register(Runnable action) {
+        return token.register(action);
+    }
+
+    /**
+     * Detaches this token from all input tokens. If it has not been cancelled yet, it will never be.
+     */
+    @Override
+    public void close() {
+        detach();
+    }
+}
@@ -0,0 +1,279 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Base of {@link AwaitableStage} implementations backed by a {@link CompletableFuture}.
+ * <p>
+ * Internal classes extend it to serve as their own stage, so no separate wrapper object is allocated;
+ * the public entry point is {@link CompletableAwaitableStage}.
+ *
+ * @param <T> the result type returned by this stage
+ */
+abstract class FutureAwaitableStage<T> implements AwaitableStage<T> {
+    final CompletableFuture<T> future;
+
+    FutureAwaitableStage(CompletableFuture<T> future) {
+        this.future = future;
+    }
+
+    /**
+     * Wraps a dependent of the underlying future returned from a {@link CompletionStage} method.
+     * Subclasses override it to observe every dependent added through the stage.
+     */
+    <U> AwaitableStage<U> dependent(CompletableFuture<U> dependent) {
+        return new CompletableAwaitableStage<>(dependent);
+    }
+
+    @Override
+    public T await() throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public T await(long timeout) throws InterruptedException, TimeoutException {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public T await(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        try {
+            return future.get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public T awaitUnchecked() {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Await interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public T awaitUnchecked(long timeout) throws TimeoutException {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Await interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public T awaitUnchecked(long timeout, TimeUnit unit) throws TimeoutException {
+        try {
+            return future.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Await interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public <U> AwaitableStage<U> thenApply(Function<? super T, ? extends U> fn) {
+        return dependent(future.thenApply(fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return dependent(future.thenApplyAsync(fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return dependent(future.thenApplyAsync(fn, executor));
+    }
+
+    @Override
+    public AwaitableStage<Void> thenAccept(Consumer<? super T> action) {
+        return dependent(future.thenAccept(action));
+    }
+
+    @Override
+    public AwaitableStage<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return dependent(future.thenAcceptAsync(action));
+    }
+
+    @Override
+    public AwaitableStage<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        return dependent(future.thenAcceptAsync(action, executor));
+    }
+
+    @Override
+    public AwaitableStage<Void> thenRun(Runnable action) {
+        return dependent(future.thenRun(action));
+    }
+
+    @Override
+    public AwaitableStage<Void> thenRunAsync(Runnable action) {
+        return dependent(future.thenRunAsync(action));
+    }
+
+    @Override
+    public AwaitableStage<Void> thenRunAsync(Runnable action, Executor executor) {
+        return dependent(future.thenRunAsync(action, executor));
+    }
+
+    @Override
+    public <U, V> AwaitableStage<V> thenCombine(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
+        return dependent(future.thenCombine(other, fn));
+    }
+
+    @Override
+    public <U, V> AwaitableStage<V> thenCombineAsync(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn) {
+        return dependent(future.thenCombineAsync(other, fn));
+    }
+
+    @Override
+    public <U, V> AwaitableStage<V> thenCombineAsync(CompletionStage<? extends U> other, BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+        return dependent(future.thenCombineAsync(other, fn, executor));
+    }
+
+    @Override
+    public <U> AwaitableStage<Void> thenAcceptBoth(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action) {
+        return dependent(future.thenAcceptBoth(other, action));
+    }
+
+    @Override
+    public <U> AwaitableStage<Void> thenAcceptBothAsync(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action) {
+        return dependent(future.thenAcceptBothAsync(other, action));
+    }
+
+    @Override
+    public <U> AwaitableStage<Void> thenAcceptBothAsync(CompletionStage<? extends U> other, BiConsumer<? super T, ? super U> action, Executor executor) {
+        return dependent(future.thenAcceptBothAsync(other, action, executor));
+    }
+
+    @Override
+    public AwaitableStage<Void> runAfterBoth(CompletionStage<?> other, Runnable action) {
+        return dependent(future.runAfterBoth(other, action));
+    }
+
+    @Override
+    public AwaitableStage<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return dependent(future.runAfterBothAsync(other, action));
+    }
+
+    @Override
+    public AwaitableStage<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return dependent(future.runAfterBothAsync(other, action, executor));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> applyToEither(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return dependent(future.applyToEither(other, fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return dependent(future.applyToEitherAsync(other, fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn, Executor executor) {
+        return dependent(future.applyToEitherAsync(other, fn, executor));
+    }
+
+    @Override
+    public AwaitableStage<Void> acceptEither(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return dependent(future.acceptEither(other, action));
+    }
+
+    @Override
+    public AwaitableStage<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return dependent(future.acceptEitherAsync(other, action));
+    }
+
+    @Override
+    public AwaitableStage<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action, Executor executor) {
+        return dependent(future.acceptEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public AwaitableStage<Void> runAfterEither(CompletionStage<?> other, Runnable action) {
+        return dependent(future.runAfterEither(other, action));
+    }
+
+    @Override
+    public AwaitableStage<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return dependent(future.runAfterEitherAsync(other, action));
+    }
+
+    @Override
+    public AwaitableStage<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return dependent(future.runAfterEitherAsync(other, action, executor));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return dependent(future.thenCompose(fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return dependent(future.thenComposeAsync(fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn, Executor executor) {
+        return dependent(future.thenComposeAsync(fn, executor));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return dependent(future.handle(fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return dependent(future.handleAsync(fn));
+    }
+
+    @Override
+    public <U> AwaitableStage<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        return dependent(future.handleAsync(fn, executor));
+    }
+
+    @Override
+    public AwaitableStage<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return dependent(future.whenComplete(action));
+    }
+
+    @Override
+    public AwaitableStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return dependent(future.whenCompleteAsync(action));
+    }
+
+    @Override
+    public AwaitableStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action, Executor executor) {
+        return dependent(future.whenCompleteAsync(action, executor));
+    }
+
+    @Override
+    public AwaitableStage<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        return dependent(future.exceptionally(fn));
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Scope interrupting the thread that opened it when a {@link CancelToken} fires while the scope is open.
+ * <p>
+ * Intended for legacy blocking code that only responds to {@link Thread#interrupt()}. Closing the scope
+ * removes the token registration in constant time; if the token managed to interrupt the thread,
+ * closing waits for the interrupt to be delivered and clears it, so it cannot leak into unrelated code
+ * the thread runs afterwards.
+ */
+public final class InterruptScope implements AutoCloseable {
+    private static final VarHandle STATE;
+    private static final int OPEN = 0;
+    private static final int CLOSED = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int INTERRUPTED = 3;
+    private static final int CLEARED = 4;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(InterruptScope.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Thread thread;
+    private final Registration registration;
+    private volatile int state;
+
+    /**
+     * Opens a scope on the current thread, bound to the given token.
+     * <p>
+     * If the token is already cancelled, the current thread is interrupted immediately.
+     *
+     * @param token the token that interrupts the current thread
+     */
+    public InterruptScope(CancelToken token) {
+        this.thread = Thread.currentThread();
+        this.registration = token.register(this::interrupt);
+    }
+
+    private void interrupt() {
+        if (STATE.compareAndSet(this, OPEN, INTERRUPTING)) {
+            thread.interrupt();
+            state = INTERRUPTED;
+        }
+    }
+
+    /**
+     * Checks whether the token interrupted the thread while the scope was open.
+     *
+     * @return {@code true} if the thread was interrupted by this scope
+     */
+    public boolean interrupted() {
+        return state >= INTERRUPTING;
+    }
+
+    /**
+     * Closes the scope, so the token no longer interrupts the thread, and clears the interrupt
+     * delivered by this scope, if any. Closing an already closed scope has no effect.
+     */
+    @Override
+    public void close() {
+        registration.unregister();
+        if (STATE.compareAndSet(this, OPEN, CLOSED)) {
+            return;
+        }
+        // The token fired concurrently, wait until the interrupt lands so it can be cleared
+        var current = state;
+        while (current == INTERRUPTING) {
+            Thread.onSpinWait();
+            current = state;
+        }
+        // Clear the interrupt only once, a later close must not swallow an interrupt from elsewhere
+        if (current == INTERRUPTED && STATE.compareAndSet(this, INTERRUPTED, CLEARED)) {
+            Thread.interrupted();
+        }
+    }
+}
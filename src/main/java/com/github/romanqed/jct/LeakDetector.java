@@ -0,0 +1,247 @@
+package com.github.romanqed.jct;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Opt-in diagnostic detecting {@link CompletableCancelToken}s that accumulate callbacks.
+ * <p>
+ * Once {@link #install(int, int, LeakSink) installed}, a sample of newly created tokens is tracked:
+ * the detector counts their live registrations and, when a count reaches the threshold and whenever it
+ * doubles afterwards, reports the token together with the stack trace of the offending registration.
+ * Dependents added through {@link CancelToken#onCancelled()}, which can never be removed, are included
+ * in the count and checked against the threshold as they are added. Tracking stops when a token fires or becomes unreachable.
+ * <p>
+ * Tokens are sampled by identity hash, so untracked tokens only pay a hash check per registration,
+ * and nothing is paid at all while no detector is installed.
+ */
+public final class LeakDetector implements LeakDetectorMXBean {
+    private static final System.Logger LOGGER = System.getLogger(LeakDetector.class.getName());
+    private static final LeakSink DEFAULT_SINK = (token, live, site) -> LOGGER.log(
+            System.Logger.Level.WARNING,
+            "Possible registration leak: " + token + " has " + live + " live callbacks",
+            site
+    );
+    static volatile LeakDetector installed;
+
+    private final int mask;
+    private final int threshold;
+    private final LeakSink sink;
+    private final Map<CompletableCancelToken, Stats> tokens;
+    private long sequence;
+
+    private LeakDetector(int sampleRate, int threshold, LeakSink sink) {
+        this.mask = sampleRate - 1;
+        this.threshold = threshold;
+        this.sink = sink;
+        this.tokens = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Installs a detector, replacing the previous one.
+     *
+     * @param sampleRate the power of two N, so that one in N tokens is tracked
+     * @param threshold  the live callback count at which a token is reported
+     * @param sink       the sink receiving reports
+     * @return the installed detector
+     */
+    public static LeakDetector install(int sampleRate, int threshold, LeakSink sink) {
+        if (sampleRate <= 0 || Integer.bitCount(sampleRate) != 1) {
+            throw new IllegalArgumentException("Sample rate must be a positive power of two");
+        }
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive");
+        }
+        var ret = new LeakDetector(sampleRate, threshold, sink);
+        installed = ret;
+        return ret;
+    }
+
+    /**
+     * Installs a detector reporting through the {@link System.Logger} named after this class.
+     *
+     * @param sampleRate the power of two N, so that one in N tokens is tracked
+     * @param threshold  the live callback count at which a token is reported
+     * @return the installed detector
+     */
+    public static LeakDetector install(int sampleRate, int threshold) {
+        return install(sampleRate, threshold, DEFAULT_SINK);
+    }
+
+    /**
+     * Uninstalls the current detector, if any. Tokens it tracks are released.
+     */
+    public static void uninstall() {
+        installed = null;
+    }
+
+    /**
+     * Registers this detector in the platform MBean server under
+     * {@code com.github.romanqed.jct:type=LeakDetector}, replacing a previously registered detector.
+     * <p>
+     * Requires the {@code java.management} module to be present at runtime.
+     */
+    public void registerMBean() {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName("com.github.romanqed.jct:type=LeakDetector");
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register leak detector MBean", e);
+        }
+    }
+
+    private static String describe(CompletableCancelToken token, Stats stats) {
+        // Identity hashes may collide, the sequence number keeps descriptions unique
+        return "CancelToken@" + Integer.toHexString(System.identityHashCode(token)) + "#" + stats.id;
+    }
+
+    private static String format(Throwable site) {
+        var ret = new StringWriter();
+        site.printStackTrace(new PrintWriter(ret));
+        return ret.toString();
+    }
+
+    void created(CompletableCancelToken token) {
+        if ((System.identityHashCode(token) & mask) != 0) {
+            return;
+        }
+        var site = new Throwable("Token creation site");
+        synchronized (tokens) {
+            tokens.put(token, new Stats(++sequence, threshold, site));
+        }
+    }
+
+    void registered(CompletableCancelToken token) {
+        check(token, true);
+    }
+
+    void dependentAdded(CompletableCancelToken token) {
+        check(token, false);
+    }
+
+    private void check(CompletableCancelToken token, boolean registration) {
+        if ((System.identityHashCode(token) & mask) != 0) {
+            return;
+        }
+        String name;
+        int live;
+        Throwable site;
+        synchronized (tokens) {
+            var stats = tokens.get(token);
+            if (stats == null) {
+                return;
+            }
+            if (registration) {
+                stats.peak = Math.max(++stats.live, stats.peak);
+            } else {
+                ++stats.dependents;
+            }
+            live = stats.live + stats.dependents;
+            if (live < stats.warning) {
+                return;
+            }
+            while (stats.warning <= live) {
+                stats.warning <<= 1;
+            }
+            site = new Throwable(registration ? "Registration site" : "Dependent site");
+            stats.site = site;
+            name = describe(token, stats);
+        }
+        sink.report(name, live, site);
+    }
+
+    void unregistered(CompletableCancelToken token) {
+        if ((System.identityHashCode(token) & mask) != 0) {
+            return;
+        }
+        synchronized (tokens) {
+            var stats = tokens.get(token);
+            if (stats != null) {
+                --stats.live;
+            }
+        }
+    }
+
+    void fired(CompletableCancelToken token) {
+        if ((System.identityHashCode(token) & mask) == 0) {
+            tokens.remove(token);
+        }
+    }
+
+    @Override
+    public int getTrackedTokens() {
+        var ret = 0;
+        synchronized (tokens) {
+            for (var token : tokens.keySet()) {
+                if (!token.future.isDone()) {
+                    ++ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<String, Integer> getLiveCallbacks() {
+        var ret = new HashMap<String, Integer>();
+        synchronized (tokens) {
+            tokens.forEach((token, stats) -> {
+                if (!token.future.isDone()) {
+                    ret.put(describe(token, stats), stats.live + stats.dependents);
+                }
+            });
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<String, Integer> getPeakRegistrations() {
+        var ret = new HashMap<String, Integer>();
+        synchronized (tokens) {
+            tokens.forEach((token, stats) -> {
+                if (!token.future.isDone()) {
+                    ret.put(describe(token, stats), stats.peak);
+                }
+            });
+        }
+        return ret;
+    }
+
+    @Override
+    public String getAllocationSite(String token) {
+        synchronized (tokens) {
+            for (var entry : tokens.entrySet()) {
+                if (describe(entry.getKey(), entry.getValue()).equals(token)) {
+                    return format(entry.getValue().site);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Stats {
+        final long id;
+        int live;
+        int dependents;
+        int peak;
+        int warning;
+        Throwable site;
+
+        private Stats(long id, int warning, Throwable site) {
+            this.id = id;
+            this.warning = warning;
+            this.site = site;
+        }
+    }
+}
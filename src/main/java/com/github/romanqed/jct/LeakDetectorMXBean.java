@@ -0,0 +1,40 @@
+package com.github.romanqed.jct;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing statistics collected by the {@link LeakDetector}.
+ */
+public interface LeakDetectorMXBean {
+
+    /**
+     * Returns the number of sampled tokens that are alive and not cancelled.
+     *
+     * @return the tracked token count
+     */
+    int getTrackedTokens();
+
+    /**
+     * Returns the live callback count of every tracked token, including stage dependents
+     * that cannot be unregistered.
+     *
+     * @return the live callback counts keyed by token description
+     */
+    Map<String, Integer> getLiveCallbacks();
+
+    /**
+     * Returns the peak registration count of every tracked token.
+     *
+     * @return the peak registration counts keyed by token description
+     */
+    Map<String, Integer> getPeakRegistrations();
+
+    /**
+     * Returns the stack trace of the latest registration that crossed the threshold on the given token,
+     * or of the token creation if no threshold has been crossed yet.
+     *
+     * @param token the token description
+     * @return the formatted stack trace, or {@code null} if the token is not tracked
+     */
+    String getAllocationSite(String token);
+}
@@ -0,0 +1,17 @@
+package com.github.romanqed.jct;
+
+/**
+ * Receives warnings from the {@link LeakDetector} about tokens accumulating callbacks.
+ */
+@FunctionalInterface
+public interface LeakSink {
+
+    /**
+     * Reports a token whose live callback count keeps rising past the configured threshold.
+     *
+     * @param token the token description, unique among live tracked tokens
+     * @param live  the number of live registrations and stage dependents of the token
+     * @param site  the stack trace of the registration that crossed the threshold
+     */
+    void report(String token, int live, Throwable site);
+}
@@ -0,0 +1,235 @@
+package com.github.romanqed.jct;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load-shedding controller cancelling queued requests once queueing delay stays above a latency target.
+ * <p>
+ * Requests are {@link #admit(int) admitted} with an {@link AdmissionToken} stamped with the admission time,
+ * and report their queueing (sojourn) time when they {@link AdmissionToken#start() start} being served.
+ * The controller follows CoDel: once the sojourn time has stayed above the target for a whole interval,
+ * it starts shedding queued requests, lowest priority and oldest first, at a rate that grows with the square
+ * root of the number of drops, until the sojourn time falls below the target. Shed tokens are cancelled with
+ * {@link CancelReason#OVERLOAD}, so downstream {@link CancelToken#checkCanceled()} calls stop the shed work.
+ * While requests are queued, a timer also checks the oldest request every interval, so a stalled queue
+ * is shed even if no request is being started.
+ */
+public final class LoadShedder implements LoadShedderMXBean {
+    private static final VarHandle ARMED;
+    private static final Comparator<AdmissionToken> BY_AGE = Comparator
+            .comparingLong(AdmissionToken::admitted)
+            .thenComparingLong(token -> token.sequence);
+    private static final Comparator<AdmissionToken> BY_PRIORITY = Comparator
+            .comparingInt(AdmissionToken::priority)
+            .thenComparing(BY_AGE);
+
+    static {
+        try {
+            ARMED = MethodHandles.lookup().findVarHandle(LoadShedder.class, "armed", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long target;
+    private final long interval;
+    private final ConcurrentSkipListSet<AdmissionToken> byAge;
+    private final ConcurrentSkipListSet<AdmissionToken> byPriority;
+    private final AtomicLong sequence;
+    private final LongAdder admitted;
+    private final LongAdder shed;
+    private final Runnable tick;
+    // CoDel state, guarded by this
+    private long firstAbove;
+    private long dropNext;
+    private int count;
+    private volatile boolean shedding;
+    @SuppressWarnings("unused")
+    private volatile boolean armed;
+
+    /**
+     * Creates a new load shedder.
+     *
+     * @param target   the acceptable standing queueing delay
+     * @param interval the time the queueing delay must stay above target before shedding starts,
+     *                 typically the worst-case request latency
+     */
+    public LoadShedder(Duration target, Duration interval) {
+        if (target.isNegative() || target.isZero() || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Target and interval must be positive");
+        }
+        this.target = target.toNanos();
+        this.interval = interval.toNanos();
+        this.byAge = new ConcurrentSkipListSet<>(BY_AGE);
+        this.byPriority = new ConcurrentSkipListSet<>(BY_PRIORITY);
+        this.sequence = new AtomicLong();
+        this.admitted = new LongAdder();
+        this.shed = new LongAdder();
+        this.tick = this::tick;
+    }
+
+    /**
+     * Admits a request into the queue.
+     *
+     * @param priority the request priority; requests with lower priority are shed first
+     * @return the token of the admitted request
+     */
+    public AdmissionToken admit(int priority) {
+        var ret = new AdmissionToken(this, priority, System.nanoTime(), sequence.getAndIncrement());
+        byAge.add(ret);
+        byPriority.add(ret);
+        admitted.increment();
+        if (ARMED.compareAndSet(this, false, true)) {
+            CancelTimer.schedule(tick, interval, TimeUnit.NANOSECONDS);
+        }
+        return ret;
+    }
+
+    boolean remove(AdmissionToken token) {
+        // The priority set decides ownership, so a request is either started or shed, never both
+        if (!byPriority.remove(token)) {
+            return false;
+        }
+        byAge.remove(token);
+        return true;
+    }
+
+    boolean dequeue(AdmissionToken token) {
+        if (!remove(token)) {
+            return false;
+        }
+        var now = System.nanoTime();
+        shed(control(now - token.admitted(), now));
+        return true;
+    }
+
+    private void tick() {
+        try {
+            // The oldest request may leave between isEmpty() and first(), the iterator never throws
+            var it = byAge.iterator();
+            var oldest = it.hasNext() ? it.next() : null;
+            if (oldest != null) {
+                var now = System.nanoTime();
+                shed(control(now - oldest.admitted(), now));
+            }
+        } finally {
+            armed = false;
+            // Requests may have been admitted while the timer was being disarmed
+            if (!byAge.isEmpty() && ARMED.compareAndSet(this, false, true)) {
+                CancelTimer.schedule(tick, interval, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private synchronized List<AdmissionToken> control(long sojourn, long now) {
+        if (sojourn < target) {
+            firstAbove = 0;
+            shedding = false;
+            return null;
+        }
+        if (!shedding) {
+            if (firstAbove == 0) {
+                firstAbove = now + interval;
+                return null;
+            }
+            if (now < firstAbove) {
+                return null;
+            }
+            // Resume near the previous drop rate if the last shedding period ended recently
+            count = count > 2 && now - dropNext < 16 * interval ? count - 2 : 1;
+            shedding = true;
+            dropNext = now + next();
+            var victim = poll();
+            return victim == null ? null : List.of(victim);
+        }
+        List<AdmissionToken> ret = null;
+        AdmissionToken victim;
+        while (now >= dropNext && (victim = poll()) != null) {
+            if (ret == null) {
+                ret = new ArrayList<>();
+            }
+            ret.add(victim);
+            ++count;
+            dropNext += next();
+        }
+        return ret;
+    }
+
+    private long next() {
+        return (long) (interval / Math.sqrt(count));
+    }
+
+    private AdmissionToken poll() {
+        var ret = byPriority.pollFirst();
+        if (ret != null) {
+            byAge.remove(ret);
+        }
+        return ret;
+    }
+
+    private void shed(List<AdmissionToken> victims) {
+        if (victims == null) {
+            return;
+        }
+        // Victims are cancelled outside of the monitor, as their callbacks may re-enter the shedder.
+        // Only the shedder cancels admission tokens and each victim is polled once, so every victim
+        // is cancelled; counting first keeps the metric in step with callbacks observing the token
+        for (var victim : victims) {
+            shed.increment();
+            victim.token.cancel(CancelReason.OVERLOAD);
+        }
+    }
+
+    /**
+     * Registers this shedder in the platform MBean server under
+     * {@code com.github.romanqed.jct:type=LoadShedder,name="<name>"}, replacing a previously registered one.
+     * <p>
+     * Requires the {@code java.management} module to be present at runtime.
+     *
+     * @param name the name distinguishing this shedder
+     */
+    public void registerMBean(String name) {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var objectName = new ObjectName("com.github.romanqed.jct:type=LoadShedder,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register load shedder MBean", e);
+        }
+    }
+
+    @Override
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    @Override
+    public long getShed() {
+        return shed.sum();
+    }
+
+    @Override
+    public int getQueued() {
+        return byAge.size();
+    }
+
+    @Override
+    public boolean isShedding() {
+        return shedding;
+    }
+}
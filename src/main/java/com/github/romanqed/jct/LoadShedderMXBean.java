@@ -0,0 +1,35 @@
+package com.github.romanqed.jct;
+
+/**
+ * Management interface exposing metrics of a {@link LoadShedder}.
+ */
+public interface LoadShedderMXBean {
+
+    /**
+     * Returns the total number of admitted requests.
+     *
+     * @return the admitted request count
+     */
+    long getAdmitted();
+
+    /**
+     * Returns the total number of requests shed under overload.
+     *
+     * @return the shed request count
+     */
+    long getShed();
+
+    /**
+     * Returns the number of requests currently queued.
+     *
+     * @return the queued request count
+     */
+    int getQueued();
+
+    /**
+     * Checks whether the shedder is currently shedding load.
+     *
+     * @return {@code true} if the queueing delay has stayed above target for at least an interval
+     */
+    boolean isShedding();
+}
@@ -0,0 +1,69 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CancelSource} implementation backed by a slot of a {@link MappedCancelTable}.
+ * <p>
+ * Each {@link #reset()} starts a new generation in the same slot, severing ties to previously issued tokens.
+ */
+public final class MappedCancelSource implements CancelSource {
+    private final MappedCancelTable table;
+    private final int slot;
+    private volatile MappedCancelToken token;
+
+    MappedCancelSource(MappedCancelTable table, int slot) {
+        this.table = table;
+        this.slot = slot;
+        this.token = new MappedCancelToken(table, slot, table.acquire(slot));
+    }
+
+    /**
+     * Returns the index of the slot this source is bound to.
+     *
+     * @return the slot index
+     */
+    public int slot() {
+        return slot;
+    }
+
+    /**
+     * Returns the generation of the current operation, which other processes must pass
+     * to {@link MappedCancelTable#cancel(int, long)} to cancel it.
+     *
+     * @return the current generation
+     */
+    public long generation() {
+        return token.generation;
+    }
+
+    @Override
+    public CancelToken token() {
+        return token;
+    }
+
+    @Override
+    public void reset() {
+        token = new MappedCancelToken(table, slot, table.acquire(slot));
+    }
+
+    @Override
+    public void cancel() {
+        token.cancel();
+    }
+
+    @Override
+    public void cancelAfter(long timeout) {
+        CancelTimer.schedule(token::cancel, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void cancelAfter(long timeout, TimeUnit unit) {
+        CancelTimer.schedule(token::cancel, timeout, unit);
+    }
+
+    @Override
+    public boolean canceled() {
+        return token.canceled();
+    }
+}
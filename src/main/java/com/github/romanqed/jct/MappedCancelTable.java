@@ -0,0 +1,276 @@
+package com.github.romanqed.jct;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Table of cancellation flags stored in a memory-mapped file and shared between processes on the same host.
+ * <p>
+ * Each slot holds a generation counter and a cancellation flag packed into a single {@code long}.
+ * Acquiring a slot with {@link #source(int)} starts a new generation, so stale cancellation requests
+ * addressed to previous operations in the same slot are ignored. Any process that maps the same file
+ * can cancel an operation by its slot and generation with {@link #cancel(int, long)}.
+ * <p>
+ * Tokens issued by the table poll the mapped memory directly. Completion of
+ * {@link CancelToken#onCancelled()} stages is immediate for cancellations made through this table
+ * instance; cancellations written by other processes are delivered by an optional watcher thread
+ * started with {@link #watch(long, TimeUnit)}.
+ */
+public final class MappedCancelTable implements AutoCloseable {
+    private static final VarHandle SLOT = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int MAGIC = 0x4A435431;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOTS_OFFSET = 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicReferenceArray<Waiter> waiters;
+    private final int slots;
+    private volatile Thread watcher;
+
+    /**
+     * Maps the given file as a table with the specified number of slots, creating and initializing it if necessary.
+     *
+     * @param path  the path to the shared file
+     * @param slots the number of slots in the table
+     * @throws IOException              if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if the file already holds a table with a different number of slots
+     */
+    public MappedCancelTable(Path path, int slots) throws IOException {
+        if (slots <= 0) {
+            throw new IllegalArgumentException("Slot count must be positive");
+        }
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * Long.BYTES);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(SLOTS_OFFSET, slots);
+            buffer.putInt(0, MAGIC);
+        } else if (buffer.getInt(SLOTS_OFFSET) != slots) {
+            channel.close();
+            throw new IllegalArgumentException("Table contains " + buffer.getInt(SLOTS_OFFSET) + " slots");
+        }
+        this.slots = slots;
+        this.waiters = new AtomicReferenceArray<>(slots);
+    }
+
+    private static long armed(long generation) {
+        return generation << 1;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * Long.BYTES;
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= slots) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " is out of range");
+        }
+    }
+
+    long get(int slot) {
+        return (long) SLOT.getVolatile(buffer, offset(slot));
+    }
+
+    /**
+     * Returns the number of slots in this table.
+     *
+     * @return the slot count
+     */
+    public int slots() {
+        return slots;
+    }
+
+    /**
+     * Returns the current generation of the given slot.
+     *
+     * @param slot the slot index
+     * @return the generation of the operation currently occupying the slot
+     */
+    public long generation(int slot) {
+        checkSlot(slot);
+        return get(slot) >>> 1;
+    }
+
+    /**
+     * Checks whether the operation with the given slot and generation has been cancelled.
+     * <p>
+     * Operations whose slot has already been reused by a newer generation are reported as cancelled.
+     *
+     * @param slot       the slot index
+     * @param generation the operation generation
+     * @return {@code true} if cancelled, {@code false} otherwise
+     */
+    public boolean canceled(int slot, long generation) {
+        checkSlot(slot);
+        return get(slot) != armed(generation);
+    }
+
+    /**
+     * Cancels the operation with the given slot and generation.
+     *
+     * @param slot       the slot index
+     * @param generation the operation generation
+     * @return {@code true} if this call cancelled the operation, {@code false} if it was already cancelled
+     * or the slot has moved on to another generation
+     */
+    public boolean cancel(int slot, long generation) {
+        checkSlot(slot);
+        var armed = armed(generation);
+        if (!SLOT.compareAndSet(buffer, offset(slot), armed, armed | 1)) {
+            return false;
+        }
+        notify(slot);
+        return true;
+    }
+
+    /**
+     * Cancels the operation currently occupying the given slot, whatever its generation is.
+     *
+     * @param slot the slot index
+     */
+    public void cancel(int slot) {
+        checkSlot(slot);
+        var offset = offset(slot);
+        while (true) {
+            var value = (long) SLOT.getVolatile(buffer, offset);
+            if ((value & 1) != 0 || SLOT.compareAndSet(buffer, offset, value, value | 1)) {
+                break;
+            }
+        }
+        notify(slot);
+    }
+
+    /**
+     * Starts a new operation in the given slot and returns a source controlling it.
+     * <p>
+     * The slot generation is incremented, so tokens issued for previous operations in the slot
+     * become cancelled.
+     *
+     * @param slot the slot index
+     * @return a new {@link MappedCancelSource} bound to the slot
+     */
+    public MappedCancelSource source(int slot) {
+        checkSlot(slot);
+        return new MappedCancelSource(this, slot);
+    }
+
+    long acquire(int slot) {
+        var offset = offset(slot);
+        while (true) {
+            var value = (long) SLOT.getVolatile(buffer, offset);
+            var generation = (value >>> 1) + 1;
+            if (SLOT.compareAndSet(buffer, offset, value, armed(generation))) {
+                notify(slot);
+                return generation;
+            }
+        }
+    }
+
+    CompletableFuture<Void> future(int slot, long generation) {
+        if (get(slot) != armed(generation)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        while (true) {
+            var waiter = waiters.get(slot);
+            if (waiter != null) {
+                if (waiter.generation == generation) {
+                    return waiter.future;
+                }
+                if (waiter.generation > generation) {
+                    return CompletableFuture.completedFuture(null);
+                }
+            }
+            var created = new Waiter(generation);
+            if (waiters.compareAndSet(slot, waiter, created)) {
+                if (waiter != null) {
+                    waiter.future.complete(null);
+                }
+                if (get(slot) != armed(generation)) {
+                    created.future.complete(null);
+                }
+                return created.future;
+            }
+        }
+    }
+
+    private void notify(int slot) {
+        var waiter = waiters.get(slot);
+        if (waiter != null && get(slot) != armed(waiter.generation)) {
+            waiters.compareAndSet(slot, waiter, null);
+            waiter.future.complete(null);
+        }
+    }
+
+    /**
+     * Starts a daemon thread that polls the table with the given period and completes
+     * {@link CancelToken#onCancelled()} stages for cancellations made by other processes.
+     * <p>
+     * Does nothing if the watcher is already running.
+     *
+     * @param period the polling period
+     * @param unit   the unit of the period parameter
+     */
+    public synchronized void watch(long period, TimeUnit unit) {
+        if (watcher != null) {
+            return;
+        }
+        var nanos = unit.toNanos(period);
+        var thread = new Thread(() -> {
+            var current = Thread.currentThread();
+            while (watcher == current) {
+                for (var i = 0; i < slots; ++i) {
+                    notify(i);
+                }
+                LockSupport.parkNanos(this, nanos);
+            }
+        }, "jct-mapped-watcher");
+        thread.setDaemon(true);
+        watcher = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the watcher thread, if any, and closes the underlying file channel.
+     * <p>
+     * Issued tokens remain readable until the mapping is reclaimed by the garbage collector.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        var thread = watcher;
+        watcher = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        channel.close();
+    }
+
+    private static final class Waiter {
+        final long generation;
+        final CompletableFuture<Void> future;
+
+        private Waiter(long generation) {
+            this.generation = generation;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
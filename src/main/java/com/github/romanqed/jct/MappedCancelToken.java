@@ -0,0 +1,47 @@
+package com.github.romanqed.jct;
+
+/**
+ * {@link CancelToken} implementation observing a slot generation of a {@link MappedCancelTable}.
+ * <p>
+ * Polling reads the shared mapped memory directly, so cancellations written by other processes
+ * are visible immediately.
+ */
+public final class MappedCancelToken implements CancelToken {
+    private final MappedCancelTable table;
+    private final int slot;
+    final long generation;
+    private final long armed;
+
+    MappedCancelToken(MappedCancelTable table, int slot, long generation) {
+        this.table = table;
+        this.slot = slot;
+        this.generation = generation;
+        this.armed = generation << 1;
+    }
+
+    void cancel() {
+        table.cancel(slot, generation);
+    }
+
+    @Override
+    public boolean canceled() {
+        return table.get(slot) != armed;
+    }
+
+    @Override
+    public boolean cancellable() {
+        return true;
+    }
+
+    @Override
+    public void checkCanceled() {
+        if (table.get(slot) != armed) {
+            throw new CancelledException(CancelReason.UNSPECIFIED);
+        }
+    }
+
+    @Override
+    public AwaitableStage<Void> onCancelled() {
+        return new CompletableAwaitableStage<>(table.future(slot, generation));
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.romanqed.jct;
+
+/**
+ * Represents a permit acquired from an {@link AsyncSemaphore} that must be returned once the guarded work is done.
+ * <p>
+ * Closing a permit is equivalent to calling {@link #release()} and ignoring its result.
+ */
+public interface Permit extends AutoCloseable {
+
+    /**
+     * Returns the permit to its semaphore, handing it to the first queued waiter, if any.
+     *
+     * @return {@code true} if the permit was returned by this call, {@code false} if it has already been released
+     */
+    boolean release();
+
+    @Override
+    default void close() {
+        release();
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the lifetime of an external {@link Process} to a {@link CancelToken}.
+ * <p>
+ * On cancellation, the process and its descendants are asked to terminate and, if they are still alive
+ * after the grace period, are destroyed forcibly. Descendants are escalated even if the process itself
+ * has already exited, as they may ignore the graceful request. The token registration is released
+ * as soon as the process exits.
+ */
+final class ProcessBinding implements Runnable {
+    final CompletableFuture<Integer> result;
+    private final Process process;
+    private final long grace;
+
+    ProcessBinding(Process process, long grace) {
+        this.result = new CompletableFuture<>();
+        this.process = process;
+        this.grace = grace;
+    }
+
+    void bind(CancelToken token) {
+        var registration = token.register(this);
+        process.onExit().whenComplete((process, error) -> {
+            registration.unregister();
+            if (error == null) {
+                result.complete(process.exitValue());
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        // Snapshot descendants first, they are reparented once the process is gone
+        var descendants = process.descendants().toArray(ProcessHandle[]::new);
+        process.destroy();
+        for (var descendant : descendants) {
+            descendant.destroy();
+        }
+        // Descendants may outlive a wrapper process that exits on the graceful request,
+        // so escalation does not depend on the process itself being alive
+        if (!process.isAlive() && !alive(descendants)) {
+            return;
+        }
+        CancelTimer.schedule(() -> {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+            for (var descendant : descendants) {
+                if (descendant.isAlive()) {
+                    descendant.destroyForcibly();
+                }
+            }
+        }, grace, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean alive(ProcessHandle[] handles) {
+        for (var handle : handles) {
+            if (handle.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
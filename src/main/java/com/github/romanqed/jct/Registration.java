@@ -0,0 +1,22 @@
+package com.github.romanqed.jct;
+
+/**
+ * Represents a callback registered on a {@link CancelToken} that can be removed before it is invoked.
+ * <p>
+ * Closing a registration is equivalent to calling {@link #unregister()} and ignoring its result.
+ */
+public interface Registration extends AutoCloseable {
+
+    /**
+     * Removes the registered callback, so it will not be invoked on cancellation.
+     *
+     * @return {@code true} if the callback was removed before being invoked,
+     * {@code false} if it has already been invoked or removed
+     */
+    boolean unregister();
+
+    @Override
+    default void close() {
+        unregister();
+    }
+}
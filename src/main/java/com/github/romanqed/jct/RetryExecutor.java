@@ -0,0 +1,265 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Executes asynchronous operations with retries, bounded by a parent {@link CancelToken} and an optional deadline.
+ * <p>
+ * Each attempt runs under its own child token, which is cancelled with {@link CancelReason#TIMEOUT}
+ * when the per-attempt timeout expires. Delays between attempts are computed by a {@link Backoff} policy
+ * and driven by the shared timer. A single registration on the parent token is held for the whole
+ * retry loop: when the parent fires, the result fails immediately, the current attempt is cancelled and
+ * the pending timer entry is removed. All timers and registrations are released once the loop ends.
+ */
+public final class RetryExecutor {
+    private final Backoff backoff;
+    private final int maxAttempts;
+    private final long attemptTimeout;
+    private final Predicate<? super Throwable> retryable;
+
+    /**
+     * Creates a new retry executor.
+     *
+     * @param backoff        the policy computing delays between attempts
+     * @param maxAttempts    the maximum number of attempts, including the first one
+     * @param attemptTimeout the timeout of a single attempt, or {@code null} for no timeout
+     * @param retryable      the predicate deciding whether an attempt failing with the given error is retried
+     */
+    public RetryExecutor(Backoff backoff,
+                         int maxAttempts,
+                         Duration attemptTimeout,
+                         Predicate<? super Throwable> retryable) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        this.backoff = Objects.requireNonNull(backoff);
+        this.maxAttempts = maxAttempts;
+        this.attemptTimeout = attemptTimeout == null ? 0 : attemptTimeout.toNanos();
+        this.retryable = Objects.requireNonNull(retryable);
+    }
+
+    /**
+     * Creates a new retry executor retrying on any error.
+     *
+     * @param backoff        the policy computing delays between attempts
+     * @param maxAttempts    the maximum number of attempts, including the first one
+     * @param attemptTimeout the timeout of a single attempt, or {@code null} for no timeout
+     */
+    public RetryExecutor(Backoff backoff, int maxAttempts, Duration attemptTimeout) {
+        this(backoff, maxAttempts, attemptTimeout, e -> true);
+    }
+
+    /**
+     * Executes the operation with retries until it succeeds, attempts are exhausted or the parent token fires.
+     *
+     * @param operation the operation to execute, receiving the token of the current attempt
+     * @param parent    the token aborting the whole retry loop
+     * @param <T>       the result type
+     * @return an {@link AwaitableStage} completed with the first successful result, or failed with
+     * the last error or a {@link CancelledException} if the parent token fires
+     */
+    public <T> AwaitableStage<T> execute(Function<? super CancelToken, ? extends CompletionStage<T>> operation,
+                                         CancelToken parent) {
+        var ret = new Retry<T>(this, operation, parent, false, 0);
+        ret.start();
+        return new CompletableAwaitableStage<>(ret.result);
+    }
+
+    /**
+     * Executes the operation with retries, additionally bounding the whole retry loop by the given deadline.
+     * <p>
+     * The last attempt is given at most the remaining time, and no attempt is started after the deadline;
+     * the result then fails with the last error, or with a {@link CancelledException} carrying
+     * {@link CancelReason#TIMEOUT} if no attempt has failed yet.
+     *
+     * @param operation the operation to execute, receiving the token of the current attempt
+     * @param parent    the token aborting the whole retry loop
+     * @param deadline  the maximum duration of the whole retry loop
+     * @param <T>       the result type
+     * @return an {@link AwaitableStage} completed with the first successful result, or failed with
+     * the last error or a {@link CancelledException}
+     */
+    public <T> AwaitableStage<T> execute(Function<? super CancelToken, ? extends CompletionStage<T>> operation,
+                                         CancelToken parent,
+                                         Duration deadline) {
+        var ret = new Retry<T>(this, operation, parent, true, System.nanoTime() + deadline.toNanos());
+        ret.start();
+        return new CompletableAwaitableStage<>(ret.result);
+    }
+
+    private static final class Retry<T> implements Runnable {
+        private static final VarHandle WIP;
+
+        static {
+            try {
+                WIP = MethodHandles.lookup().findVarHandle(Retry.class, "wip", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final CompletableFuture<T> result;
+        private final RetryExecutor executor;
+        private final Function<? super CancelToken, ? extends CompletionStage<T>> operation;
+        private final CancelToken parent;
+        private final boolean bounded;
+        private final long deadline;
+        private int attempts;
+        private volatile CompletableCancelToken child;
+        private volatile ScheduledFuture<?> timer;
+        private volatile Registration registration;
+        @SuppressWarnings("unused")
+        private volatile int wip;
+
+        private Retry(RetryExecutor executor,
+                      Function<? super CancelToken, ? extends CompletionStage<T>> operation,
+                      CancelToken parent,
+                      boolean bounded,
+                      long deadline) {
+            this.result = new CompletableFuture<>();
+            this.executor = executor;
+            this.operation = operation;
+            this.parent = parent;
+            this.bounded = bounded;
+            this.deadline = deadline;
+        }
+
+        void start() {
+            var registration = parent.register(this::abort);
+            this.registration = registration;
+            if (result.isDone()) {
+                registration.unregister();
+                return;
+            }
+            run();
+        }
+
+        private void abort() {
+            var reason = parent.reason();
+            if (!result.completeExceptionally(new CancelledException(reason))) {
+                return;
+            }
+            var timer = this.timer;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            var child = this.child;
+            if (child != null) {
+                child.cancel(reason);
+            }
+        }
+
+        private void release() {
+            var registration = this.registration;
+            if (registration != null) {
+                registration.unregister();
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (result.completeExceptionally(error)) {
+                release();
+            }
+        }
+
+        @Override
+        public void run() {
+            // Attempts failing synchronously request the next one from within attempt(),
+            // so they are started by this loop instead of recursing
+            if ((int) WIP.getAndAdd(this, 1) != 0) {
+                return;
+            }
+            do {
+                attempt();
+            } while ((int) WIP.getAndAdd(this, -1) != 1);
+        }
+
+        private void attempt() {
+            if (result.isDone()) {
+                return;
+            }
+            var timeout = executor.attemptTimeout;
+            if (bounded) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    fail(new CancelledException(CancelReason.TIMEOUT));
+                    return;
+                }
+                timeout = timeout == 0 ? remaining : Math.min(timeout, remaining);
+            }
+            var child = new CompletableCancelToken(new CompletableFuture<>());
+            this.child = child;
+            ScheduledFuture<?> timer = null;
+            if (timeout != 0) {
+                timer = CancelTimer.schedule(() -> child.cancel(CancelReason.TIMEOUT), timeout, TimeUnit.NANOSECONDS);
+            }
+            this.timer = timer;
+            // The parent may have fired before the attempt was published
+            if (result.isDone()) {
+                child.cancel(parent.reason());
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                return;
+            }
+            CompletionStage<T> stage;
+            try {
+                stage = operation.apply(child);
+            } catch (Throwable e) {
+                stage = CompletableFuture.failedFuture(e);
+            }
+            var attemptTimer = timer;
+            stage.whenComplete((value, error) -> {
+                if (attemptTimer != null) {
+                    attemptTimer.cancel(false);
+                }
+                // The finished attempt is no longer cancelled by the parent
+                this.child = null;
+                complete(value, error);
+            });
+        }
+
+        private void complete(T value, Throwable error) {
+            if (result.isDone()) {
+                return;
+            }
+            if (error == null) {
+                if (result.complete(value)) {
+                    release();
+                }
+                return;
+            }
+            if (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+            if (++attempts >= executor.maxAttempts || !executor.retryable.test(error)) {
+                fail(error);
+                return;
+            }
+            var delay = Math.max(executor.backoff.delay(attempts), 0);
+            if (bounded && System.nanoTime() + delay >= deadline) {
+                fail(error);
+                return;
+            }
+            if (delay == 0) {
+                run();
+                return;
+            }
+            var timer = CancelTimer.schedule(this, delay, TimeUnit.NANOSECONDS);
+            this.timer = timer;
+            if (result.isDone()) {
+                timer.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.romanqed.jct;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Loader coalescing concurrent requests for the same key into a single shared load.
+ * <p>
+ * The first caller for a key starts the load, bound to the token of a {@link CancelSource} owned by the flight;
+ * later callers join the load in flight and each receive their own {@link AwaitableStage}. A caller whose token
+ * is cancelled fails with a {@link CancelledException} and leaves the flight, while the others keep waiting:
+ * the shared load is cancelled only when every caller has left. The flight is evicted once the load completes
+ * or is cancelled, so subsequent calls start a fresh load.
+ *
+ * @param <K> the key type
+ * @param <V> the loaded value type
+ */
+public final class SingleFlight<K, V> {
+    private final BiFunction<? super K, ? super CancelToken, ? extends CompletionStage<? extends V>> loader;
+    private final ConcurrentMap<K, Flight> flights;
+
+    /**
+     * Creates a single-flight loader.
+     *
+     * @param loader the function starting the load of a key, bound to the token of the shared load
+     */
+    public SingleFlight(BiFunction<? super K, ? super CancelToken, ? extends CompletionStage<? extends V>> loader) {
+        this.loader = Objects.requireNonNull(loader);
+        this.flights = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the number of loads currently in flight.
+     *
+     * @return the in-flight load count
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /**
+     * Loads the value of the given key, joining the load in flight for it, if any.
+     *
+     * @param key   the key to load
+     * @param token the token abandoning the request of this caller
+     * @return an {@link AwaitableStage} completing with the loaded value, or failing with
+     * a {@link CancelledException} if the token is cancelled first
+     */
+    public AwaitableStage<V> load(K key, CancelToken token) {
+        Objects.requireNonNull(key);
+        if (token.canceled()) {
+            return new CompletableAwaitableStage<>(CompletableFuture.failedFuture(new CancelledException(token.reason())));
+        }
+        while (true) {
+            var flight = flights.computeIfAbsent(key, Flight::new);
+            if (flight.join()) {
+                // The load is started outside of the map, so slow loaders do not block other keys
+                flight.start();
+                var ret = new Call(flight, token);
+                ret.attach();
+                return ret;
+            }
+            // Every caller has left this flight, so it is being evicted
+            flights.remove(key, flight);
+        }
+    }
+
+    private final class Flight {
+        private final K key;
+        private final CancelSource source;
+        private final CompletableFuture<V> result;
+        // Guarded by this
+        private int count;
+        private boolean closed;
+        private boolean started;
+
+        private Flight(K key) {
+            this.key = key;
+            this.source = Cancellation.source();
+            this.result = new CompletableFuture<>();
+        }
+
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            ++count;
+            return true;
+        }
+
+        void start() {
+            synchronized (this) {
+                if (started) {
+                    return;
+                }
+                started = true;
+            }
+            try {
+                loader.apply(key, source.token()).whenComplete(this::complete);
+            } catch (Throwable e) {
+                complete(null, e);
+            }
+        }
+
+        private void complete(V value, Throwable error) {
+            flights.remove(key, this);
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+            }
+        }
+
+        void leave(CancelReason reason) {
+            synchronized (this) {
+                if (--count != 0 || result.isDone()) {
+                    return;
+                }
+                closed = true;
+            }
+            flights.remove(key, this);
+            source.cancel(reason);
+        }
+    }
+
+    private final class Call extends FutureAwaitableStage<V> implements Runnable, BiConsumer<V, Throwable> {
+        private final Flight flight;
+        private final CancelToken token;
+        private volatile Registration registration;
+
+        private Call(Flight flight, CancelToken token) {
+            super(new CompletableFuture<>());
+            this.flight = flight;
+            this.token = token;
+        }
+
+        void attach() {
+            if (token.cancellable()) {
+                registration = token.register(this);
+            }
+            flight.result.whenComplete(this);
+        }
+
+        @Override
+        public void run() {
+            if (future.completeExceptionally(new CancelledException(token.reason()))) {
+                flight.leave(token.reason());
+            }
+        }
+
+        @Override
+        public void accept(V value, Throwable error) {
+            var registration = this.registration;
+            if (registration != null) {
+                registration.unregister();
+            }
+            if (error == null) {
+                future.complete(value);
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * {@link Registration} attached to a cancellation stage of a token without native registration support.
+ * <p>
+ * The stage keeps a reference to this object until completion, but unregistering
+ * drops the reference to the callback, so everything it captures can be reclaimed.
+ */
+final class StageRegistration implements Registration, Runnable {
+    private static final VarHandle ACTION;
+
+    static {
+        try {
+            ACTION = MethodHandles.lookup().findVarHandle(StageRegistration.class, "action", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private volatile Runnable action;
+
+    StageRegistration(Runnable action) {
+        this.action = action;
+    }
+
+    @Override
+    public void run() {
+        var action = (Runnable) ACTION.getAndSet(this, null);
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    @Override
+    public boolean unregister() {
+        return ACTION.getAndSet(this, null) != null;
+    }
+}
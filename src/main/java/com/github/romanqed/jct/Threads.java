@@ -0,0 +1,19 @@
+package com.github.romanqed.jct;
+
+/**
+ * Thread factory for tasks bound to cancel tokens.
+ * <p>
+ * This is the baseline implementation starting a daemon platform thread per task.
+ * The Java 21 layer of the multi-release jar replaces it with one starting virtual threads.
+ */
+final class Threads {
+    private Threads() {
+    }
+
+    static Thread start(Runnable task) {
+        var ret = new Thread(task, "jct-task");
+        ret.setDaemon(true);
+        ret.start();
+        return ret;
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.romanqed.jct;
+
+/**
+ * {@link Registration} node linked into the callback list of a {@link CompletableCancelToken}.
+ * <p>
+ * Links are guarded by the monitor of the owning token; the owner is cleared once the node is unlinked.
+ */
+class TokenRegistration implements Registration {
+    final Runnable action;
+    volatile CompletableCancelToken owner;
+    TokenRegistration prev;
+    TokenRegistration next;
+
+    TokenRegistration(Runnable action) {
+        this.action = action;
+    }
+
+    void fire() {
+        action.run();
+    }
+
+    @Override
+    public boolean unregister() {
+        var owner = this.owner;
+        return owner != null && owner.unlink(this);
+    }
+}
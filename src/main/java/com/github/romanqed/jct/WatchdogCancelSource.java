@@ -0,0 +1,123 @@
+package com.github.romanqed.jct;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CancelSource} implementation that cancels automatically when no progress
+ * has been reported for the configured idle timeout.
+ * <p>
+ * Progress is reported with {@link #touch()}, which only records the current time.
+ * A single timer is kept armed while the source is active; when it expires, it checks the time
+ * of the last touch and either cancels the source with {@link CancelReason#TIMEOUT} or re-arms itself
+ * for the remaining period.
+ */
+public final class WatchdogCancelSource implements CancelSource {
+    private static final VarHandle ARMED;
+
+    static {
+        try {
+            ARMED = MethodHandles.lookup().findVarHandle(WatchdogCancelSource.class, "armed", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long timeout;
+    private final Runnable check;
+    private volatile CompletableCancelToken token;
+    private volatile long touched;
+    @SuppressWarnings("unused")
+    private volatile boolean armed;
+
+    /**
+     * Creates a new watchdog source with the given idle timeout and starts watching immediately.
+     *
+     * @param timeout the idle timeout
+     * @param unit    the unit of the timeout parameter
+     */
+    public WatchdogCancelSource(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.timeout = unit.toNanos(timeout);
+        this.check = this::check;
+        this.token = new CompletableCancelToken(new CompletableFuture<>());
+        this.touched = System.nanoTime();
+        arm();
+    }
+
+    private void schedule(long delay) {
+        CancelTimer.schedule(check, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void arm() {
+        if (ARMED.compareAndSet(this, false, true)) {
+            schedule(timeout);
+        }
+    }
+
+    private void check() {
+        var current = token;
+        if (!current.future.isDone()) {
+            var elapsed = System.nanoTime() - touched;
+            if (elapsed < timeout) {
+                schedule(timeout - elapsed);
+                return;
+            }
+            current.cancel(CancelReason.TIMEOUT);
+        }
+        armed = false;
+        // The source may have been reset while the timer was being disarmed
+        if (!token.future.isDone()) {
+            arm();
+        }
+    }
+
+    /**
+     * Reports progress, extending the idle deadline by the configured timeout from now.
+     */
+    public void touch() {
+        touched = System.nanoTime();
+    }
+
+    @Override
+    public CancelToken token() {
+        return token;
+    }
+
+    @Override
+    public void reset() {
+        touched = System.nanoTime();
+        token = new CompletableCancelToken(new CompletableFuture<>());
+        arm();
+    }
+
+    @Override
+    public void cancel() {
+        token.cancel(CancelReason.UNSPECIFIED);
+    }
+
+    @Override
+    public void cancel(CancelReason reason) {
+        token.cancel(Objects.requireNonNull(reason));
+    }
+
+    @Override
+    public void cancelAfter(long timeout) {
+        cancelAfter(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void cancelAfter(long timeout, TimeUnit unit) {
+        CancelTimer.cancelAfter(token, timeout, unit);
+    }
+
+    @Override
+    public boolean canceled() {
+        return token.future.isDone();
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.romanqed.jct;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Callback linking parent tokens to a child cancellation future through a weak reference.
+ * <p>
+ * A single link is registered on all parents, so the parents never keep the child reachable.
+ * Once the child is collected, the link is enqueued and its registrations are removed from the parents
+ * in batches during later weak registrations.
+ */
+final class WeakLink extends WeakReference<CompletableFuture<Void>> implements Runnable {
+    private static final ReferenceQueue<CompletableFuture<Void>> QUEUE = new ReferenceQueue<>();
+    private static final int EXPUNGE_BATCH = 64;
+
+    private volatile Registration[] registrations;
+
+    private WeakLink(CompletableFuture<Void> future) {
+        super(future, QUEUE);
+    }
+
+    static void link(CompletableFuture<Void> future, CancelToken[] tokens) {
+        expunge();
+        var link = new WeakLink(future);
+        var registrations = new Registration[tokens.length];
+        for (var i = 0; i < tokens.length; ++i) {
+            registrations[i] = tokens[i].register(link);
+        }
+        link.registrations = registrations;
+        // The future must stay reachable until the link can release its registrations
+        Reference.reachabilityFence(future);
+    }
+
+    private static void expunge() {
+        for (var i = 0; i < EXPUNGE_BATCH; ++i) {
+            var link = (WeakLink) QUEUE.poll();
+            if (link == null) {
+                return;
+            }
+            for (var registration : link.registrations) {
+                registration.unregister();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        var future = get();
+        if (future != null) {
+            future.complete(null);
+        }
+    }
+}
@@ -12,5 +12,7 @@
  * </ul>
  */
 module com.github.romanqed.jct {
+    requires static java.management;
+
     exports com.github.romanqed.jct;
 }
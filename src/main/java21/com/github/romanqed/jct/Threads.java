@@ -0,0 +1,23 @@
+package com.github.romanqed.jct;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factory for tasks bound to cancel tokens.
+ * <p>
+ * This is the Java 21 implementation starting a virtual thread per task. Blocking waits on tokens and stages
+ * park the virtual thread, releasing its carrier, and cancellation unwinds it with an interrupt.
+ */
+final class Threads {
+    // Thread.Builder is not thread-safe, while factories created from it are
+    private static final ThreadFactory FACTORY = Thread.ofVirtual().name("jct-task").factory();
+
+    private Threads() {
+    }
+
+    static Thread start(Runnable task) {
+        var thread = FACTORY.newThread(task);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class AsyncSemaphoreTest {
+
+    @Test
+    public void testFifoHandOff() throws Exception {
+        var mutex = Cancellation.mutex();
+        var first = mutex.acquire().await(1, TimeUnit.SECONDS);
+        assertNull(mutex.tryAcquire());
+        var second = mutex.acquire();
+        var third = mutex.acquire();
+        assertEquals(2, mutex.waiting());
+        assertTrue(first.release());
+        assertFalse(first.release());
+        var permit = second.await(1, TimeUnit.SECONDS);
+        assertEquals(1, mutex.waiting());
+        permit.close();
+        third.await(1, TimeUnit.SECONDS).close();
+        assertEquals(0, mutex.waiting());
+        assertEquals(1, mutex.available());
+    }
+
+    @Test
+    public void testCancelledWaiterIsUnlinked() throws Exception {
+        var mutex = Cancellation.mutex();
+        var first = mutex.tryAcquire();
+        assertNotNull(first);
+        var source = Cancellation.source();
+        var cancelled = mutex.acquire(source.token());
+        var next = mutex.acquire();
+        source.cancel(CancelReason.DISCONNECTED);
+        // The waiter leaves the queue immediately, not when the permit is released
+        assertEquals(1, mutex.waiting());
+        var ex = assertThrows(CancelledException.class, () -> cancelled.await(1, TimeUnit.SECONDS));
+        assertEquals(CancelReason.DISCONNECTED, ex.reason());
+        first.release();
+        next.await(1, TimeUnit.SECONDS).release();
+        assertEquals(1, mutex.available());
+
+        // Acquisition with an already cancelled token fails without taking a permit
+        var failed = mutex.acquire(Cancellation.canceledToken());
+        assertThrows(CancelledException.class, () -> failed.await(1, TimeUnit.SECONDS));
+        assertEquals(1, mutex.available());
+    }
+
+    @Test
+    public void testLongQueueHandOffDoesNotRecurse() throws Exception {
+        var mutex = Cancellation.mutex();
+        var first = mutex.tryAcquire();
+        var served = new AtomicInteger();
+        var stages = new ArrayList<AwaitableStage<Void>>();
+        for (var i = 0; i < 20000; ++i) {
+            // Each continuation releases synchronously, handing the permit to the next waiter
+            stages.add(mutex.acquire().thenAccept(permit -> {
+                served.incrementAndGet();
+                permit.release();
+            }));
+        }
+        first.release();
+        for (var stage : stages) {
+            stage.await(5, TimeUnit.SECONDS);
+        }
+        assertEquals(20000, served.get());
+        assertEquals(1, mutex.available());
+        assertEquals(0, mutex.waiting());
+    }
+
+    @Test
+    public void testHandOffIsNotDeferredToBusyThread() throws Exception {
+        var semaphore = Cancellation.semaphore(2);
+        var first = semaphore.tryAcquire();
+        var second = semaphore.tryAcquire();
+        var entered = new CountDownLatch(1);
+        var blocked = new CountDownLatch(1);
+        var busy = semaphore.acquire().thenAccept(permit -> {
+            entered.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            permit.release();
+        });
+        var next = semaphore.acquire();
+        var thread = new Thread(first::release);
+        thread.start();
+        Permit permit;
+        try {
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // The releasing thread completes its own grant while another thread is stuck in a continuation
+            second.release();
+            permit = next.await(1, TimeUnit.SECONDS);
+        } finally {
+            blocked.countDown();
+        }
+        thread.join(5000);
+        busy.await(5, TimeUnit.SECONDS);
+        permit.release();
+        assertEquals(2, semaphore.available());
+    }
+
+    @Test
+    public void testConcurrentPermits() throws Exception {
+        var semaphore = Cancellation.semaphore(3);
+        var active = new AtomicInteger();
+        var max = new AtomicInteger();
+        var tasks = new CompletableFuture<?>[100];
+        for (var i = 0; i < tasks.length; ++i) {
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                var permit = semaphore.acquire().awaitUnchecked();
+                try {
+                    max.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    active.decrementAndGet();
+                } finally {
+                    permit.release();
+                }
+            });
+        }
+        CompletableFuture.allOf(tasks).get(10, TimeUnit.SECONDS);
+        assertTrue(max.get() <= 3);
+        assertEquals(3, semaphore.available());
+        assertEquals(0, semaphore.waiting());
+    }
+}
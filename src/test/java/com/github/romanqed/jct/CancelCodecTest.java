@@ -0,0 +1,103 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CancelCodecTest {
+
+    @Test
+    public void testDeadlineAcrossThreads() throws Exception {
+        var channel = new SynchronousQueue<ByteBuffer>();
+        var receiver = CompletableFuture.supplyAsync(() -> {
+            try {
+                return CancelCodec.decode(channel.take()).token();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        var buffer = ByteBuffer.allocate(CancelCodec.MAX_LENGTH);
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        var length = CancelCodec.encode(Cancellation.source().token(), deadline, buffer);
+        assertTrue(length <= CancelCodec.MAX_LENGTH);
+        channel.put(buffer.flip());
+        var token = receiver.get(5, TimeUnit.SECONDS);
+        assertTrue(token.cancellable());
+        token.onCancelled().await(5, TimeUnit.SECONDS);
+        assertEquals(CancelReason.TIMEOUT, token.reason());
+        assertTrue(System.nanoTime() - deadline >= 0);
+    }
+
+    @Test
+    public void testBinaryStates() {
+        var buffer = ByteBuffer.allocate(CancelCodec.MAX_LENGTH * 4);
+        var source = Cancellation.source();
+        source.cancel(CancelReason.DISCONNECTED);
+        CancelCodec.encode(source.token(), buffer);
+        var custom = Cancellation.source();
+        custom.cancel(new CancelReason(1000, "Custom"));
+        CancelCodec.encode(custom.token(), buffer);
+        CancelCodec.encode(Cancellation.emptyToken(), buffer);
+        var length = CancelCodec.encode(Cancellation.source().token(), System.nanoTime() + Long.MAX_VALUE / 2, buffer);
+        assertTrue(length <= CancelCodec.MAX_LENGTH);
+        buffer.flip();
+        assertEquals(CancelReason.DISCONNECTED, CancelCodec.decode(buffer).token().reason());
+        assertEquals(1000, CancelCodec.decode(buffer).token().reason().code());
+        assertFalse(CancelCodec.decode(buffer).canceled());
+        var distant = CancelCodec.decode(buffer).token();
+        assertTrue(distant.cancellable());
+        assertFalse(distant.canceled());
+        assertFalse(buffer.hasRemaining());
+
+        // An expired deadline arrives as an already timed out token
+        buffer.clear();
+        CancelCodec.encode(Cancellation.source().token(), System.nanoTime() - 1, buffer);
+        assertEquals(CancelReason.TIMEOUT, CancelCodec.decode(buffer.flip()).token().reason());
+
+        assertThrows(IllegalArgumentException.class, () -> CancelCodec.decode(ByteBuffer.wrap(new byte[]{0x21})));
+        // Truncated input is reported as malformed rather than as a buffer underflow
+        assertThrows(IllegalArgumentException.class, () -> CancelCodec.decode(ByteBuffer.allocate(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> CancelCodec.decode(ByteBuffer.wrap(new byte[]{0x12, (byte) 0x80})));
+    }
+
+    @Test
+    public void testDecodedDeadlineIsReleased() {
+        var buffer = ByteBuffer.allocate(CancelCodec.MAX_LENGTH);
+        CancelCodec.encode(Cancellation.source().token(), System.nanoTime() + TimeUnit.SECONDS.toNanos(60), buffer);
+        buffer.flip();
+        var sources = new CancelSource[100];
+        for (var i = 0; i < sources.length; ++i) {
+            sources[i] = CancelCodec.decode(buffer.duplicate());
+        }
+        var armed = CancelTimer.pending();
+        // Ending the requests drops their deadline timers instead of keeping them queued for a minute
+        for (var source : sources) {
+            source.cancel();
+        }
+        assertTrue(armed - CancelTimer.pending() >= sources.length);
+    }
+
+    @Test
+    public void testHeader() {
+        var source = Cancellation.source();
+        source.cancel(CancelReason.SHUTDOWN);
+        assertEquals("c2", CancelCodec.encode(source.token(), CancelCodec.NO_DEADLINE));
+        assertEquals(CancelReason.SHUTDOWN, CancelCodec.decode("c2").token().reason());
+        assertEquals("n", CancelCodec.encode(Cancellation.source().token(), CancelCodec.NO_DEADLINE));
+        assertFalse(CancelCodec.decode("n").canceled());
+        var header = CancelCodec.encode(Cancellation.source().token(), System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        assertTrue(header.startsWith("d"));
+        assertFalse(CancelCodec.decode(header).canceled());
+        assertEquals(CancelReason.TIMEOUT, CancelCodec.decode("d0").token().reason());
+        assertThrows(IllegalArgumentException.class, () -> CancelCodec.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> CancelCodec.decode("x1"));
+        assertThrows(IllegalArgumentException.class, () -> CancelCodec.decode("d-5"));
+        assertThrows(IllegalArgumentException.class, () -> CancelCodec.decode("dabc"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CancelRegistryTest {
+
+    @Test
+    public void testCancelById() {
+        var registry = Cancellation.registry();
+        var token = registry.register(42);
+        var other = registry.register(43);
+
+        assertTrue(token.cancellable());
+        assertFalse(token.canceled());
+        assertDoesNotThrow(token::checkCanceled);
+
+        registry.cancel(42);
+
+        assertTrue(token.canceled());
+        assertTrue(registry.canceled(42));
+        assertFalse(other.canceled());
+        assertThrows(CancellationException.class, token::checkCanceled);
+    }
+
+    @Test
+    public void testCancelRangeAndPrefix() {
+        var registry = Cancellation.registry();
+        var tokens = new CancelToken[10_000];
+        for (var i = 0; i < tokens.length; ++i) {
+            tokens[i] = registry.register(i);
+        }
+
+        registry.cancel(100, 5000);
+        for (var i = 0; i < tokens.length; ++i) {
+            assertEquals(i >= 100 && i <= 5000, tokens[i].canceled());
+        }
+
+        var prefixed = registry.register(7L << 48 | 12345);
+        var foreign = registry.register(8L << 48 | 12345);
+        registry.cancelPrefix(7, 16);
+        assertTrue(prefixed.canceled());
+        assertFalse(foreign.canceled());
+    }
+
+    @Test
+    public void testCancelAllAndRelease() {
+        var registry = Cancellation.registry();
+        var first = registry.register(-1);
+        var second = registry.register(Long.MAX_VALUE);
+        var stage = first.onCancelled();
+
+        registry.cancelAll();
+
+        assertTrue(first.canceled());
+        assertTrue(second.canceled());
+        assertDoesNotThrow(() -> stage.await());
+
+        // Released identifiers start from scratch on registration
+        registry.release(-1);
+        assertFalse(registry.canceled(-1));
+        assertFalse(registry.register(-1).canceled());
+    }
+}
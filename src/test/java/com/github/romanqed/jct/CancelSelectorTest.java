@@ -0,0 +1,98 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CancelSelectorTest {
+
+    @Test
+    public void testSelectFiredToken() throws Exception {
+        var selector = new CancelSelector();
+        var sources = new CancelSource[]{Cancellation.source(), Cancellation.source(), Cancellation.source()};
+        var tokens = new CancelToken[]{sources[0].token(), sources[1].token(), sources[2].token()};
+        CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            sources[1].cancel();
+        });
+        assertEquals(1, selector.select(tokens, 5, TimeUnit.SECONDS));
+        assertEquals(1, selector.selectNow(tokens));
+        // Already cancelled tokens are reported without parking
+        assertEquals(1, selector.select(tokens));
+    }
+
+    @Test
+    public void testTimeoutAndReuse() throws Exception {
+        var selector = new CancelSelector();
+        var first = Cancellation.source();
+        var second = Cancellation.source();
+        var tokens = new CancelToken[]{first.token(), Cancellation.emptyToken(), second.token()};
+        assertEquals(CancelSelector.TIMEOUT, selector.selectNow(tokens));
+        assertEquals(CancelSelector.TIMEOUT, selector.select(tokens, 0, TimeUnit.MILLISECONDS));
+        for (var i = 0; i < 100; ++i) {
+            assertEquals(CancelSelector.TIMEOUT, selector.select(tokens, 1, TimeUnit.MILLISECONDS));
+        }
+        // Detached waiters from earlier selections do not wake later ones
+        first.cancel();
+        assertEquals(CancelSelector.TIMEOUT, selector.select(new CancelToken[]{second.token()}, 10,
+                TimeUnit.MILLISECONDS));
+        assertEquals(0, selector.select(tokens, 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testForeignTokens() throws Exception {
+        var selector = new CancelSelector();
+        var source = Cancellation.source();
+        var combined = Cancellation.combinedToken(Cancellation.source().token(), source.token());
+        var tokens = new CancelToken[]{Cancellation.source().token(), combined};
+        CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            source.cancel();
+        });
+        assertEquals(1, selector.select(tokens, 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCombinedTokensLeaveNoDependents() throws Exception {
+        var selector = new CancelSelector();
+        var source = Cancellation.source();
+        var pair = Cancellation.combinedToken(Cancellation.source().token(), source.token());
+        var array = Cancellation.combinedToken(Cancellation.source().token(), Cancellation.source().token(),
+                source.token());
+        var tokens = new CancelToken[]{pair, array};
+        var pairStage = (CompletableCancelToken) pair.onCancelled();
+        var arrayStage = (CompletableCancelToken) array.onCancelled();
+        assertEquals(CancelSelector.TIMEOUT, selector.select(tokens, 1, TimeUnit.MILLISECONDS));
+        var pairDependents = pairStage.future.getNumberOfDependents();
+        var arrayDependents = arrayStage.future.getNumberOfDependents();
+        for (var i = 0; i < 100; ++i) {
+            assertEquals(CancelSelector.TIMEOUT, selector.select(tokens, 1, TimeUnit.MILLISECONDS));
+            pair.register(() -> {
+            }).unregister();
+        }
+        assertEquals(pairDependents, pairStage.future.getNumberOfDependents());
+        assertEquals(arrayDependents, arrayStage.future.getNumberOfDependents());
+        source.cancel();
+        assertEquals(0, selector.select(tokens, 5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInterrupt() {
+        var selector = new CancelSelector();
+        var tokens = new CancelToken[]{Cancellation.source().token()};
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> selector.select(tokens));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
@@ -2,10 +2,17 @@ package com.github.romanqed.jct;
 
 import org.junit.jupiter.api.Test;
 
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -52,6 +59,73 @@ public final class CancellationTest {
         assertDoesNotThrow(() -> token.onCancelled().awaitUnchecked());
     }
 
+    @Test
+    public void testRegistrations() {
+        var source = Cancellation.source();
+        var token = source.token();
+        var counter = new AtomicInteger();
+
+        var kept = token.register(counter::incrementAndGet);
+        var removed = token.register(() -> counter.addAndGet(100));
+        assertTrue(removed.unregister());
+        assertFalse(removed.unregister());
+
+        source.cancel();
+        assertEquals(1, counter.get());
+        assertFalse(kept.unregister());
+
+        // Registration on a cancelled token runs immediately
+        token.register(counter::incrementAndGet);
+        assertEquals(2, counter.get());
+
+        // Tokens without native support fall back to the cancellation stage
+        var s1 = Cancellation.source();
+        var combined = Cancellation.combinedToken(s1.token(), Cancellation.source().token());
+        var fallback = combined.register(() -> counter.addAndGet(100));
+        assertTrue(fallback.unregister());
+        s1.cancel();
+        assertEquals(2, counter.get());
+        assertFalse(Cancellation.emptyToken().register(counter::incrementAndGet).unregister());
+    }
+
+    @Test
+    public void testCancelReasons() throws InterruptedException {
+        var source = Cancellation.source();
+        var token = source.token();
+        assertNull(token.reason());
+
+        source.cancel(CancelReason.SHUTDOWN);
+        source.cancel(CancelReason.DISCONNECTED);
+        assertSame(CancelReason.SHUTDOWN, token.reason());
+        var ex = assertThrows(CancelledException.class, token::checkCanceled);
+        assertSame(CancelReason.SHUTDOWN, ex.reason());
+
+        // Plain cancellation reports an unspecified reason
+        source.reset();
+        source.cancel();
+        assertSame(CancelReason.UNSPECIFIED, source.token().reason());
+
+        // Scheduled cancellation is tagged as a timeout
+        source.reset();
+        source.cancelAfter(10);
+        source.token().onCancelled().await();
+        assertSame(CancelReason.TIMEOUT, source.token().reason());
+
+        // Combinators report the reason of the cancelled input
+        var custom = new CancelReason(1000, "Custom");
+        var first = Cancellation.source();
+        var second = Cancellation.source();
+        var combined = Cancellation.combinedToken(first.token(), second.token());
+        var linked = Cancellation.combined(first.token(), second.token());
+        var fanIn = Cancellation.fanIn(first.token(), second.token());
+        second.cancel(custom);
+        assertSame(custom, combined.reason());
+        assertSame(custom, linked.token().reason());
+        assertSame(custom, fanIn.reason());
+        assertSame(CancelReason.UNSPECIFIED, Cancellation.canceledToken().reason());
+        assertNull(Cancellation.emptyToken().reason());
+    }
+
     @Test
     public void testCompletableCancelSourceCancel() {
         var source = new CompletableCancelSource(CompletableFuture::new);
@@ -85,6 +159,383 @@ public final class CancellationTest {
         assertTrue(source.canceled());
     }
 
+    @Test
+    public void testDelayAndSleep() throws Exception {
+        var source = Cancellation.source();
+        assertDoesNotThrow(() -> Cancellation.delay(Duration.ofMillis(10), source.token()).await(5, TimeUnit.SECONDS));
+        Cancellation.sleep(Duration.ofMillis(10), source.token());
+
+        // Cancellation fails pending delays and sleeps promptly
+        var delay = Cancellation.delay(Duration.ofHours(1), source.token());
+        var sleeper = CompletableFuture.runAsync(() -> assertThrows(CancelledException.class,
+                () -> Cancellation.sleep(Duration.ofHours(1), source.token())));
+        Thread.sleep(50);
+        source.cancel(CancelReason.SHUTDOWN);
+        var ex = assertThrows(CancelledException.class, () -> delay.await(5, TimeUnit.SECONDS));
+        assertSame(CancelReason.SHUTDOWN, ex.reason());
+        sleeper.get(5, TimeUnit.SECONDS);
+
+        // Already cancelled tokens fail immediately
+        var late = Cancellation.delay(Duration.ofHours(1), source.token());
+        assertThrows(CancelledException.class, () -> late.await(0, TimeUnit.SECONDS));
+        assertThrows(CancelledException.class, () -> Cancellation.sleep(Duration.ofHours(1), source.token()));
+    }
+
+    @Test
+    public void testProcessBinding() throws Exception {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        // A process exiting on its own reports its exit code
+        var exited = Cancellation.bind(new ProcessBuilder("sh", "-c", "exit 3").start(),
+                Cancellation.source().token(), Duration.ofSeconds(1));
+        assertEquals(3, (int) exited.await(5, TimeUnit.SECONDS));
+
+        // A process ignoring the graceful request is destroyed forcibly after the grace period
+        var source = Cancellation.source();
+        var process = new ProcessBuilder("sh", "-c", "trap '' TERM; while true; do sleep 1; done").start();
+        var killed = Cancellation.bind(process, source.token(), Duration.ofMillis(100));
+        Thread.sleep(100);
+        source.cancel();
+        killed.await(5, TimeUnit.SECONDS);
+        assertFalse(process.isAlive());
+
+        // A child ignoring the graceful request is destroyed forcibly even after its wrapper has exited
+        var wrapperSource = Cancellation.source();
+        var wrapper = new ProcessBuilder("sh", "-c", "(trap '' TERM; while true; do sleep 1; done) & wait").start();
+        var wrapped = Cancellation.bind(wrapper, wrapperSource.token(), Duration.ofMillis(100));
+        Thread.sleep(200);
+        var children = wrapper.children().toArray(ProcessHandle[]::new);
+        assertTrue(children.length > 0);
+        wrapperSource.cancel();
+        wrapped.await(5, TimeUnit.SECONDS);
+        for (var child : children) {
+            child.onExit().get(5, TimeUnit.SECONDS);
+            assertFalse(child.isAlive());
+        }
+    }
+
+    @Test
+    public void testInterruptScope() throws Exception {
+        var source = Cancellation.source();
+        try (var scope = Cancellation.interruptOnCancel(source.token())) {
+            assertFalse(scope.interrupted());
+        }
+        // Closed scope neither interrupts the thread nor keeps the callback
+        source.cancel();
+        assertFalse(Thread.currentThread().isInterrupted());
+
+        var other = Cancellation.source();
+        var result = CompletableFuture.supplyAsync(() -> {
+            try (var scope = Cancellation.interruptOnCancel(other.token())) {
+                Thread.sleep(TimeUnit.HOURS.toMillis(1));
+                return false;
+            } catch (InterruptedException e) {
+                return true;
+            }
+        });
+        Thread.sleep(50);
+        other.cancel();
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+
+        // The interrupt delivered by the scope is cleared on close
+        try (var scope = Cancellation.interruptOnCancel(Cancellation.canceledToken())) {
+            assertTrue(scope.interrupted());
+            assertTrue(Thread.currentThread().isInterrupted());
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+
+        // Closing again keeps interrupts delivered by others after the first close
+        var scope = Cancellation.interruptOnCancel(Cancellation.canceledToken());
+        scope.close();
+        Thread.currentThread().interrupt();
+        scope.close();
+        assertTrue(scope.interrupted());
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        assertEquals(42, (int) Cancellation.execute(() -> 42, Cancellation.emptyToken()).await(5, TimeUnit.SECONDS));
+        var thread = Cancellation.execute(Thread::currentThread, Cancellation.emptyToken()).await(5, TimeUnit.SECONDS);
+        assertEquals("jct-task", thread.getName());
+        // Only the Java 21 test run has the versioned classes on its class path
+        if ("21".equals(System.getProperty("jct.test.layer"))) {
+            assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+        }
+
+        // A blocked task is interrupted on cancellation
+        var source = Cancellation.source();
+        var started = new CompletableFuture<Void>();
+        var task = Cancellation.execute(() -> {
+            started.complete(null);
+            Thread.sleep(TimeUnit.HOURS.toMillis(1));
+            return 0;
+        }, source.token());
+        started.get(5, TimeUnit.SECONDS);
+        source.cancel(CancelReason.SHUTDOWN);
+        var ex = assertThrows(CancelledException.class, () -> task.await(5, TimeUnit.SECONDS));
+        assertSame(CancelReason.SHUTDOWN, ex.reason());
+        assertTrue(ex.getCause() instanceof InterruptedException);
+
+        assertThrows(CancelledException.class, () -> Cancellation.execute(() -> 0, source.token()).await());
+    }
+
+    @Test
+    public void testCancellableScheduler() throws Exception {
+        var executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            var scheduler = Cancellation.scheduler(executor);
+            var source = Cancellation.source();
+            var calls = new AtomicInteger();
+
+            // One-shot task runs and releases its registration
+            var once = scheduler.schedule(calls::incrementAndGet, 0, TimeUnit.MILLISECONDS, source.token());
+            once.get(5, TimeUnit.SECONDS);
+            assertEquals(1, calls.get());
+
+            // Pending and periodic tasks are cancelled and removed from the queue when the token fires
+            scheduler.schedule(calls::incrementAndGet, 1, TimeUnit.HOURS, source.token());
+            var periodic = scheduler.scheduleAtFixedRate(calls::incrementAndGet, 1, 1, TimeUnit.HOURS, source.token());
+            assertEquals(2, executor.getQueue().size());
+            source.cancel();
+            assertTrue(periodic.isCancelled());
+            assertEquals(0, executor.getQueue().size());
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConfinedCancelSource() throws Exception {
+        var loop = Executors.newSingleThreadExecutor();
+        try {
+            var calls = new AtomicInteger();
+            var source = CompletableFuture.supplyAsync(() -> Cancellation.confined(loop), loop).get();
+            var other = Cancellation.source();
+            var setup = CompletableFuture.supplyAsync(() -> {
+                var token = source.token();
+                token.register(calls::incrementAndGet);
+                assertTrue(token.register(() -> calls.addAndGet(100)).unregister());
+                var combined = Cancellation.combinedToken(token, other.token());
+                return List.of(token, combined, token.onCancelled());
+            }, loop).get();
+            var token = (CancelToken) setup.get(0);
+            var combined = (CancelToken) setup.get(1);
+            var stage = (AwaitableStage<?>) setup.get(2);
+
+            // Registration is confined to the owner thread
+            assertThrows(IllegalStateException.class, () -> token.register(calls::incrementAndGet));
+            assertThrows(IllegalStateException.class, source::token);
+
+            // Cancellation from a foreign thread is handed off to the loop
+            source.cancel(CancelReason.SHUTDOWN);
+            stage.await(5, TimeUnit.SECONDS);
+            assertTrue(token.canceled());
+            assertSame(CancelReason.SHUTDOWN, token.reason());
+            assertEquals(1, calls.get());
+            assertTrue(combined.canceled());
+        } finally {
+            loop.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConfinedUnregisterWhileFiring() {
+        var source = Cancellation.confined(Runnable::run);
+        var token = source.token();
+        var later = new Registration[1];
+        var unregistered = new AtomicInteger(-1);
+        var calls = new AtomicInteger();
+        token.register(() -> unregistered.set(later[0].unregister() ? 1 : 0));
+        later[0] = token.register(calls::incrementAndGet);
+        // Callbacks are detached before firing, so unregistering a later one reports it as fired
+        source.cancel();
+        assertEquals(0, unregistered.get());
+        assertEquals(1, calls.get());
+        assertFalse(later[0].unregister());
+    }
+
+    @Test
+    public void testMapAsync() throws Exception {
+        var inFlight = new AtomicInteger();
+        var peak = new AtomicInteger();
+        Iterable<Integer> items = IntStream.range(0, 1000).boxed()::iterator;
+        var squares = Cancellation.mapAsync(items, 8, (Integer item, CancelToken token) -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                return item * item;
+            });
+        }, Cancellation.emptyToken()).await(5, TimeUnit.SECONDS);
+        assertEquals(1000, squares.size());
+        assertEquals(999 * 999, (int) squares.get(999));
+        assertTrue(peak.get() <= 8);
+
+        // Streaming variant with synchronous completions does not recurse
+        var sum = new long[1];
+        Cancellation.mapAsync(IntStream.range(0, 100_000).boxed()::iterator, 4,
+                (Integer item, CancelToken token) -> CompletableFuture.completedFuture(item),
+                (Integer item) -> sum[0] += item, Cancellation.emptyToken()).await(5, TimeUnit.SECONDS);
+        assertEquals(99_999L * 100_000 / 2, sum[0]);
+
+        // Cancellation stops pulling input and cancels in-flight items
+        var source = Cancellation.source();
+        var pulled = new AtomicInteger();
+        var children = new ArrayList<CancelToken>();
+        Iterable<Integer> infinite = IntStream.iterate(0, i -> i + 1).peek(i -> pulled.incrementAndGet()).boxed()::iterator;
+        var pending = Cancellation.mapAsync(infinite, 4, (Integer item, CancelToken token) -> {
+            children.add(token);
+            return new CompletableFuture<Integer>();
+        }, source.token());
+        assertEquals(4, pulled.get());
+        source.cancel(CancelReason.SHUTDOWN);
+        var ex = assertThrows(CancelledException.class, () -> pending.await(5, TimeUnit.SECONDS));
+        assertSame(CancelReason.SHUTDOWN, ex.reason());
+        assertEquals(4, pulled.get());
+        assertTrue(children.stream().allMatch(CancelToken::canceled));
+
+        // The first error stops the pipeline
+        var failed = Cancellation.mapAsync(List.of(1, 2, 3), 1, (Integer item, CancelToken token) -> item == 2
+                ? CompletableFuture.<Integer>failedFuture(new IllegalStateException("Bad item"))
+                : CompletableFuture.completedFuture(item), Cancellation.emptyToken());
+        var error = assertThrows(RuntimeException.class, () -> failed.await(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testWatchdogCancelSource() throws InterruptedException {
+        var source = Cancellation.watchdog(100, TimeUnit.MILLISECONDS);
+        var token = source.token();
+
+        // Regular progress keeps the source alive past the idle timeout
+        for (var i = 0; i < 6; ++i) {
+            Thread.sleep(40);
+            source.touch();
+        }
+        assertFalse(token.canceled());
+
+        Thread.sleep(250);
+        assertTrue(token.canceled());
+        assertTrue(source.canceled());
+
+        source.reset();
+        assertFalse(source.canceled());
+        Thread.sleep(250);
+        assertTrue(source.canceled());
+    }
+
+    @Test
+    public void testCancellableStream() {
+        var source = Cancellation.source();
+        var seen = new AtomicInteger();
+        var count = Cancellation.stream(IntStream.range(0, 1_000_000).boxed(), source.token())
+                .peek(i -> {
+                    if (seen.incrementAndGet() == 10_000) {
+                        source.cancel();
+                    }
+                })
+                .count();
+        assertTrue(count >= 10_000 && count < 1_000_000);
+
+        // Cancelled token prevents parallel traversal from doing any work
+        var cancelled = Cancellation.stream(IntStream.range(0, 1_000_000).boxed().parallel(), source.token())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertEquals(0, cancelled.length);
+
+        var all = Cancellation.stream(IntStream.range(0, 100_000).boxed().parallel(), Cancellation.emptyToken())
+                .count();
+        assertEquals(100_000, all);
+    }
+
+    @Test
+    public void testCancelGroup() throws InterruptedException {
+        var group = new CancelGroup(3);
+        var sources = new CancelSource[10];
+        var memberships = new Registration[sources.length];
+        for (var i = 0; i < sources.length; ++i) {
+            sources[i] = Cancellation.source();
+            memberships[i] = group.join(sources[i]);
+        }
+        assertTrue(memberships[0].unregister());
+        assertEquals(9, group.size());
+
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            group.cancelAll(pool).await();
+        } finally {
+            pool.shutdown();
+        }
+        assertFalse(sources[0].canceled());
+        for (var i = 1; i < sources.length; ++i) {
+            assertTrue(sources[i].canceled());
+        }
+
+        group.resetAll();
+        for (var i = 1; i < sources.length; ++i) {
+            assertFalse(sources[i].canceled());
+        }
+        group.cancelAll();
+        assertTrue(sources[9].canceled());
+    }
+
+    @Test
+    public void testFanInCancelToken() {
+        var sources = new ArrayList<CancelSource>();
+        var tokens = new ArrayList<CancelToken>();
+        for (var i = 0; i < 10_000; ++i) {
+            var source = Cancellation.source();
+            sources.add(source);
+            tokens.add(source.token());
+        }
+        var token = Cancellation.fanIn(tokens);
+        var fired = new AtomicInteger();
+        token.register(fired::incrementAndGet);
+
+        assertTrue(token.cancellable());
+        assertFalse(token.canceled());
+
+        sources.get(5_000).cancel();
+        sources.get(7_000).cancel();
+        assertTrue(token.canceled());
+        assertThrows(CancellationException.class, token::checkCanceled);
+        assertEquals(1, fired.get());
+
+        // Closed fan-in is detached from its inputs
+        var source = Cancellation.source();
+        var closed = Cancellation.fanIn(source.token(), Cancellation.emptyToken());
+        closed.close();
+        source.cancel();
+        assertFalse(closed.canceled());
+
+        assertTrue(Cancellation.fanIn(Cancellation.canceledToken(), source.token()).canceled());
+    }
+
+    @Test
+    public void testWeakCombinedToken() throws InterruptedException {
+        var global = Cancellation.source();
+        var request = Cancellation.source();
+        var combined = Cancellation.weakCombinedToken(global.token(), request.token());
+        request.cancel(CancelReason.DISCONNECTED);
+        assertTrue(combined.canceled());
+        assertSame(CancelReason.DISCONNECTED, combined.reason());
+        combined.onCancelled().await();
+
+        // An abandoned combined token is not retained by the long-lived token
+        var abandoned = new WeakReference<>(Cancellation.weakCombinedToken(global.token(), Cancellation.source().token()));
+        for (var i = 0; i < 50 && abandoned.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(abandoned.get());
+
+        var live = Cancellation.weakCombinedToken(global.token(), Cancellation.source().token());
+        global.cancel();
+        assertDoesNotThrow(() -> live.onCancelled().await(5, TimeUnit.SECONDS));
+    }
+
     @Test
     public void testCombinedArrayCancelToken() {
         var source1 = Cancellation.source();
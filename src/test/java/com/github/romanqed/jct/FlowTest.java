@@ -0,0 +1,96 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class FlowTest {
+
+    @Test
+    public void testTokenCancelsSubscription() throws Exception {
+        var source = Cancellation.source();
+        var received = new AtomicInteger();
+        var downstream = new RecordingSubscriber<Integer>(received);
+        try (var publisher = new SubmissionPublisher<Integer>(Runnable::run, 16)) {
+            publisher.subscribe(new CancellableSubscriber<>(downstream, source.token()));
+            publisher.submit(1);
+            publisher.submit(2);
+            assertEquals(2, received.get());
+
+            source.cancel();
+
+            assertEquals(0, publisher.getNumberOfSubscribers());
+            assertTrue(downstream.error.get(1, TimeUnit.SECONDS) instanceof CancellationException);
+            publisher.submit(3);
+            assertEquals(2, received.get());
+        }
+    }
+
+    @Test
+    public void testDownstreamCancelAndRelease() {
+        var token = Cancellation.source();
+        var source = Cancellation.source();
+        var received = new AtomicInteger();
+        var downstream = new RecordingSubscriber<Integer>(received);
+        try (var publisher = new SubmissionPublisher<Integer>(Runnable::run, 16)) {
+            var processor = new CancellableProcessor<Integer>(token.token(), source);
+            publisher.subscribe(processor);
+            processor.subscribe(downstream);
+            publisher.submit(1);
+            assertEquals(1, received.get());
+
+            downstream.subscription.cancel();
+            assertTrue(source.canceled());
+            assertEquals(0, publisher.getNumberOfSubscribers());
+        }
+
+        // Completion releases the registration, so later cancellation is not delivered
+        var completed = new RecordingSubscriber<Integer>(new AtomicInteger());
+        var publisher = new SubmissionPublisher<Integer>(Runnable::run, 16);
+        publisher.subscribe(new CancellableSubscriber<>(completed, token.token()));
+        publisher.close();
+        assertTrue(completed.complete.isDone());
+        token.cancel();
+        assertFalse(completed.error.isDone());
+    }
+
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        final AtomicInteger received;
+        final CompletableFuture<Throwable> error = new CompletableFuture<>();
+        final CompletableFuture<Void> complete = new CompletableFuture<>();
+        volatile Flow.Subscription subscription;
+
+        RecordingSubscriber(AtomicInteger received) {
+            this.received = received;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(T item) {
+            received.incrementAndGet();
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete.complete(null);
+        }
+    }
+}
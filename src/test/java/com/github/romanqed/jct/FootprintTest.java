@@ -0,0 +1,61 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retained size budgets, in bytes, for the default 64-bit layout with compressed oops.
+ * A failing budget means a change added fields or objects to the hot cancellation path.
+ * The budgets are exact for the current layout, so any added field has to be accounted for here.
+ */
+public final class FootprintTest {
+    private static final Runnable NOOP = () -> {
+    };
+
+    private static long size(Object... roots) {
+        return GraphLayout.parseInstance(roots).totalSize();
+    }
+
+    private static void assertBudget(long budget, long actual, String what) {
+        assertTrue(actual <= budget, what + " retains " + actual + " bytes, budget is " + budget);
+    }
+
+    @Test
+    public void testSourceFootprint() {
+        // source + shared supplier lambda + token + future
+        assertBudget(88, size(Cancellation.source()), "CancelSource");
+    }
+
+    @Test
+    public void testTokenFootprint() {
+        // token (also serving as its stage) + future; the token holds only the future,
+        // the reason and the callback list head, whose sentinels replace separate state flags
+        var token = Cancellation.source().token();
+        assertBudget(48, size(token), "CancelToken");
+        assertTrue(token.onCancelled() == token);
+    }
+
+    @Test
+    public void testRegistrationFootprint() {
+        var token = Cancellation.source().token();
+        // The first registration installs a single completion hook per token
+        token.register(NOOP);
+        var before = size(token, NOOP);
+        token.register(NOOP);
+        assertBudget(32, size(token, NOOP) - before, "Registration");
+    }
+
+    @Test
+    public void testCombinedTokenFootprint() {
+        var first = Cancellation.source().token();
+        var second = Cancellation.source().token();
+        first.register(NOOP);
+        second.register(NOOP);
+        var before = size(first, second, NOOP);
+        var combined = Cancellation.combinedToken(first, second);
+        // combined token + stage token + future + shared action + two registration nodes
+        assertBudget(152, size(first, second, NOOP, combined) - before, "Combined token");
+    }
+}
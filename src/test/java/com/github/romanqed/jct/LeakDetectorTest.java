@@ -0,0 +1,81 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class LeakDetectorTest {
+
+    @Test
+    public void testReportsGrowingTokens() {
+        var reports = new ArrayList<Integer>();
+        var detector = LeakDetector.install(1, 4, (token, live, site) -> reports.add(live));
+        try {
+            var source = Cancellation.source();
+            var token = source.token();
+            var kept = new ArrayList<Registration>();
+            for (var i = 0; i < 9; ++i) {
+                kept.add(token.register(() -> {
+                }));
+            }
+            // Reported at the threshold and once the count doubled
+            assertEquals(2, reports.size());
+            assertEquals(4, (int) reports.get(0));
+            assertEquals(8, (int) reports.get(1));
+
+            // Unregistered callbacks and undetachable stage dependents are both counted
+            kept.forEach(Registration::unregister);
+            token.onCancelled().thenRun(() -> {
+            });
+            var name = detector.getLiveCallbacks().keySet().iterator().next();
+            assertEquals(1, (int) detector.getLiveCallbacks().get(name));
+            assertEquals(9, (int) detector.getPeakRegistrations().get(name));
+            assertTrue(detector.getAllocationSite(name).contains("Registration site"));
+            assertEquals(1, detector.getTrackedTokens());
+
+            // Fired tokens are no longer tracked
+            source.cancel();
+            assertEquals(0, detector.getTrackedTokens());
+            detector.registerMBean();
+
+            // Every tracked token is described uniquely
+            var sources = new ArrayList<CancelSource>();
+            for (var i = 0; i < 100; ++i) {
+                var other = Cancellation.source();
+                other.token().register(() -> {
+                });
+                sources.add(other);
+            }
+            assertEquals(100, detector.getLiveCallbacks().size());
+            sources.forEach(CancelSource::cancel);
+        } finally {
+            LeakDetector.uninstall();
+        }
+    }
+
+    @Test
+    public void testReportsLeakingStageDependents() {
+        var reports = new ArrayList<Integer>();
+        var sites = new ArrayList<Throwable>();
+        LeakDetector.install(1, 4, (token, live, site) -> {
+            reports.add(live);
+            sites.add(site);
+        });
+        try {
+            var token = Cancellation.source().token();
+            for (var i = 0; i < 8; ++i) {
+                token.onCancelled().thenRun(() -> {
+                });
+            }
+            // Dependents can never be removed, so the loop is reported as it grows
+            assertEquals(2, reports.size());
+            assertEquals(4, (int) reports.get(0));
+            assertEquals(8, (int) reports.get(1));
+            assertEquals("Dependent site", sites.get(0).getMessage());
+        } finally {
+            LeakDetector.uninstall();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class LoadShedderTest {
+
+    @Test
+    public void testNoSheddingBelowTarget() {
+        var shedder = new LoadShedder(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        for (var i = 0; i < 100; ++i) {
+            try (var token = shedder.admit(0)) {
+                assertTrue(token.start());
+                assertFalse(token.canceled());
+            }
+        }
+        assertEquals(100, shedder.getAdmitted());
+        assertEquals(0, shedder.getShed());
+        assertEquals(0, shedder.getQueued());
+        assertFalse(shedder.isShedding());
+    }
+
+    @Test
+    public void testStalledQueueShedsLowestPriorityFirst() throws Exception {
+        var shedder = new LoadShedder(Duration.ofMillis(1), Duration.ofMillis(10));
+        var order = new ArrayList<Integer>();
+        var tokens = new ArrayList<AdmissionToken>();
+        for (var i = 0; i < 6; ++i) {
+            var token = shedder.admit(i % 2 == 0 ? 10 : 0);
+            token.register(() -> {
+                synchronized (order) {
+                    order.add(token.priority());
+                }
+            });
+            tokens.add(token);
+        }
+        // Nobody starts the requests, so the timer detects the standing queue and sheds everything
+        for (var token : tokens) {
+            token.onCancelled().await(5, TimeUnit.SECONDS);
+            assertEquals(CancelReason.OVERLOAD, token.reason());
+            assertFalse(token.start());
+        }
+        assertEquals(6, shedder.getShed());
+        assertEquals(0, shedder.getQueued());
+        synchronized (order) {
+            assertEquals(List.of(0, 0, 0, 10, 10, 10), order);
+        }
+    }
+
+    @Test
+    public void testCallbacksRunOutsideOfShedder() throws Exception {
+        var shedder = new LoadShedder(Duration.ofMillis(1), Duration.ofMillis(10));
+        var victim = shedder.admit(0);
+        var other = shedder.admit(10);
+        var started = new CompletableFuture<Boolean>();
+        victim.register(() -> {
+            // Another thread entering the shedder must not wait for the shedding one
+            try {
+                started.complete(CompletableFuture.supplyAsync(other::start).get(5, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                started.completeExceptionally(e);
+            }
+        });
+        victim.onCancelled().await(5, TimeUnit.SECONDS);
+        assertTrue(started.get(5, TimeUnit.SECONDS));
+        assertEquals(1, shedder.getShed());
+    }
+
+    @Test
+    public void testRecoveryBelowTarget() throws Exception {
+        var shedder = new LoadShedder(Duration.ofMillis(5), Duration.ofMillis(20));
+        var token = shedder.admit(0);
+        Thread.sleep(10);
+        assertTrue(token.start());
+        // A single delay above target does not shed anything
+        var fresh = shedder.admit(0);
+        assertTrue(fresh.start());
+        assertFalse(shedder.isShedding());
+        assertEquals(0, shedder.getShed());
+    }
+}
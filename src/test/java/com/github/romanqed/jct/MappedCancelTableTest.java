@@ -0,0 +1,64 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class MappedCancelTableTest {
+
+    @Test
+    public void testLocalCancel() throws IOException {
+        var file = Files.createTempFile("jct", ".tbl");
+        try (var table = new MappedCancelTable(file, 16)) {
+            var source = table.source(3);
+            var token = source.token();
+            var stage = token.onCancelled();
+
+            assertFalse(token.canceled());
+            assertDoesNotThrow(token::checkCanceled);
+
+            source.cancel();
+
+            assertTrue(token.canceled());
+            assertTrue(source.canceled());
+            assertThrows(CancellationException.class, token::checkCanceled);
+            assertDoesNotThrow(() -> stage.await(1, TimeUnit.SECONDS));
+
+            source.reset();
+            assertFalse(source.canceled());
+            assertTrue(token.canceled());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCrossTableCancel() throws IOException, InterruptedException, TimeoutException {
+        var file = Files.createTempFile("jct", ".tbl");
+        try (var worker = new MappedCancelTable(file, 8);
+             var supervisor = new MappedCancelTable(file, 8)) {
+            var source = worker.source(5);
+            var token = source.token();
+            var stage = token.onCancelled();
+            worker.watch(1, TimeUnit.MILLISECONDS);
+
+            // Stale generation is ignored
+            assertFalse(supervisor.cancel(5, source.generation() - 1));
+            assertFalse(token.canceled());
+
+            assertTrue(supervisor.cancel(5, source.generation()));
+            assertTrue(token.canceled());
+            stage.await(1, TimeUnit.SECONDS);
+
+            assertThrows(IllegalArgumentException.class, () -> new MappedCancelTable(file, 9));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
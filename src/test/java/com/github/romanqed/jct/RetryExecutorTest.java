@@ -0,0 +1,92 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class RetryExecutorTest {
+    private static final Backoff BACKOFF = new ExponentialBackoff(Duration.ofMillis(1), Duration.ofMillis(10));
+
+    @Test
+    public void testRetryUntilSuccess() throws Exception {
+        var executor = new RetryExecutor(BACKOFF, 5, null);
+        var attempts = new AtomicInteger();
+        var result = executor.execute(token -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new IOException("Attempt failed"))
+                : CompletableFuture.completedFuture("done"), Cancellation.emptyToken());
+        assertEquals("done", result.await(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+
+        // Exhausted attempts fail with the last error
+        var failed = executor.execute(token -> CompletableFuture.failedFuture(new IOException("Always")),
+                Cancellation.emptyToken());
+        var ex = assertThrows(RuntimeException.class, () -> failed.await(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof IOException);
+    }
+
+    @Test
+    public void testAttemptTimeout() throws Exception {
+        var executor = new RetryExecutor(BACKOFF, 3, Duration.ofMillis(20));
+        var attempts = new AtomicInteger();
+        var result = executor.execute(token -> {
+            if (attempts.incrementAndGet() == 1) {
+                // Never completes by itself, only when the attempt times out
+                return token.onCancelled().thenCompose(v -> CompletableFuture.failedFuture(
+                        new CancelledException(token.reason())));
+            }
+            return CompletableFuture.completedFuture(attempts.get());
+        }, Cancellation.emptyToken());
+        assertEquals(2, (int) result.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testParentAbort() throws Exception {
+        var executor = new RetryExecutor(new ExponentialBackoff(Duration.ofHours(1), Duration.ofHours(1)), 5, null);
+        var source = Cancellation.source();
+        var attempt = new CompletableFuture<CancelToken>();
+        var result = executor.execute(token -> {
+            attempt.complete(token);
+            return CompletableFuture.failedFuture(new IOException("Attempt failed"));
+        }, source.token());
+        var token = attempt.get(5, TimeUnit.SECONDS);
+
+        // The loop is waiting for an hour-long back-off, which is abandoned on parent cancellation
+        source.cancel(CancelReason.SHUTDOWN);
+        var ex = assertThrows(CancelledException.class, () -> result.await(5, TimeUnit.SECONDS));
+        assertSame(CancelReason.SHUTDOWN, ex.reason());
+        assertFalse(token.canceled());
+
+        // Deadlines bound the whole loop
+        var bounded = executor.execute(t -> CompletableFuture.failedFuture(new IOException("Attempt failed")),
+                Cancellation.emptyToken(), Duration.ofMillis(50));
+        var error = assertThrows(RuntimeException.class, () -> bounded.await(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IOException);
+    }
+
+    @Test
+    public void testSynchronousFailures() throws Exception {
+        var executor = new RetryExecutor(attempt -> 0, 100_000, null);
+        var attempts = new AtomicInteger();
+        var result = executor.execute(token -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IOException("Attempt failed"));
+        }, Cancellation.emptyToken());
+        var error = assertThrows(RuntimeException.class, () -> result.await(30, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IOException);
+        assertEquals(100_000, attempts.get());
+    }
+
+    @Test
+    public void testInvalidBackoff() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoff(Duration.ofSeconds(2), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExponentialBackoff(Duration.ofSeconds(-1), Duration.ofSeconds(1)));
+    }
+}
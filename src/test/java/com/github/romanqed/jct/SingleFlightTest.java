@@ -0,0 +1,71 @@
+package com.github.romanqed.jct;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class SingleFlightTest {
+
+    @Test
+    public void testCoalescing() throws Exception {
+        var loads = new AtomicInteger();
+        var pending = new CompletableFuture<String>();
+        var flight = Cancellation.<String, String>singleFlight((key, token) -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        var calls = new ArrayList<AwaitableStage<String>>();
+        for (var i = 0; i < 500; ++i) {
+            calls.add(flight.load("key", Cancellation.emptyToken()));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.inFlight());
+        pending.complete("value");
+        for (var call : calls) {
+            assertEquals("value", call.await(1, TimeUnit.SECONDS));
+        }
+        // The completed flight is evicted, so the next call loads again
+        assertEquals(0, flight.inFlight());
+        flight.load("key", Cancellation.emptyToken());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testCancelledOnlyWhenAllCallersLeave() throws Exception {
+        var shared = new CompletableFuture<CancelToken>();
+        var flight = Cancellation.<String, String>singleFlight((key, token) -> {
+            shared.complete(token);
+            return new CompletableFuture<>();
+        });
+        var first = Cancellation.source();
+        var second = Cancellation.source();
+        var firstCall = flight.load("key", first.token());
+        var secondCall = flight.load("key", second.token());
+        var token = shared.get(1, TimeUnit.SECONDS);
+        first.cancel();
+        // A single impatient caller does not cancel the shared load
+        assertThrows(CancelledException.class, () -> firstCall.await(1, TimeUnit.SECONDS));
+        assertFalse(token.canceled());
+        second.cancel(CancelReason.DISCONNECTED);
+        assertThrows(CancelledException.class, () -> secondCall.await(1, TimeUnit.SECONDS));
+        assertTrue(token.canceled());
+        assertEquals(CancelReason.DISCONNECTED, token.reason());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testFailureIsShared() {
+        var flight = Cancellation.<Integer, String>singleFlight(
+                (key, token) -> CompletableFuture.failedFuture(new IOException("Load failed")));
+        var call = flight.load(1, Cancellation.emptyToken());
+        var ex = assertThrows(RuntimeException.class, () -> call.await(1, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof IOException);
+        assertEquals(0, flight.inFlight());
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.romanqed.jct.stress;
+
+import com.github.romanqed.jct.CancelReason;
+import com.github.romanqed.jct.CancelSource;
+import com.github.romanqed.jct.CancelToken;
+import com.github.romanqed.jct.Cancellation;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+/**
+ * Observes a token while it is being cancelled: a reader that sees the token cancelled
+ * must also see its reason, since the reason is published before the cancelled flag.
+ */
+@JCStressTest
+@Outcome(id = "false, false", expect = Expect.ACCEPTABLE, desc = "Not cancelled yet")
+@Outcome(id = "true, true", expect = Expect.ACCEPTABLE, desc = "Cancelled with the reason visible")
+@Outcome(id = "false, true", expect = Expect.ACCEPTABLE, desc = "Cancelled between the two reads")
+@Outcome(id = "true, false", expect = Expect.FORBIDDEN, desc = "Cancelled flag visible before the reason")
+@State
+public class CancelObserveStress {
+    private final CancelSource source = Cancellation.source();
+    private final CancelToken token = source.token();
+
+    @Actor
+    public void cancel() {
+        source.cancel(CancelReason.SHUTDOWN);
+    }
+
+    @Actor
+    public void observe(ZZ_Result r) {
+        r.r1 = token.canceled();
+        r.r2 = token.reason() == CancelReason.SHUTDOWN;
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.romanqed.jct.stress;
+
+import com.github.romanqed.jct.CancelReason;
+import com.github.romanqed.jct.CancelSource;
+import com.github.romanqed.jct.CancelToken;
+import com.github.romanqed.jct.CancelledException;
+import com.github.romanqed.jct.Cancellation;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+/**
+ * Races two cancellations with different reasons: exactly one reason wins, and both
+ * {@link CancelToken#reason()} and the exception thrown by {@link CancelToken#checkCanceled()} report it.
+ */
+@JCStressTest
+@Outcome(id = "1, 1", expect = Expect.ACCEPTABLE, desc = "Timeout won")
+@Outcome(id = "2, 2", expect = Expect.ACCEPTABLE, desc = "Shutdown won")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Reason torn between observers")
+@State
+public class CancelReasonStress {
+    private final CancelSource source = Cancellation.source();
+
+    @Actor
+    public void timeout() {
+        source.cancel(CancelReason.TIMEOUT);
+    }
+
+    @Actor
+    public void shutdown() {
+        source.cancel(CancelReason.SHUTDOWN);
+    }
+
+    @Arbiter
+    public void arbiter(II_Result r) {
+        var token = source.token();
+        r.r1 = token.reason().code();
+        try {
+            token.checkCanceled();
+            r.r2 = -1;
+        } catch (CancelledException e) {
+            r.r2 = e.reason().code();
+        }
+    }
+}
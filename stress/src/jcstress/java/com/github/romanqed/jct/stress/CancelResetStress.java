@@ -0,0 +1,38 @@
+package com.github.romanqed.jct.stress;
+
+import com.github.romanqed.jct.CancelSource;
+import com.github.romanqed.jct.CancelToken;
+import com.github.romanqed.jct.Cancellation;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+/**
+ * Races {@link CancelSource#cancel()} against {@link CancelSource#reset()}: the cancel must land on exactly
+ * one of the tokens, never on both and never on neither.
+ */
+@JCStressTest
+@Outcome(id = "true, false", expect = Expect.ACCEPTABLE, desc = "Cancel hit the old token, reset issued a fresh one")
+@Outcome(id = "false, true", expect = Expect.ACCEPTABLE, desc = "Reset happened first, cancel hit the new token")
+@Outcome(id = "false, false", expect = Expect.FORBIDDEN, desc = "Lost cancel")
+@Outcome(id = "true, true", expect = Expect.FORBIDDEN, desc = "Stale token after reset")
+@State
+public class CancelResetStress {
+    private final CancelSource source = Cancellation.source();
+    private final CancelToken old = source.token();
+
+    @Actor
+    public void cancel() {
+        source.cancel();
+    }
+
+    @Actor
+    public void reset() {
+        source.reset();
+    }
+
+    @Arbiter
+    public void arbiter(ZZ_Result r) {
+        r.r1 = old.canceled();
+        r.r2 = source.token().canceled();
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.romanqed.jct.stress;
+
+import com.github.romanqed.jct.CancelSource;
+import com.github.romanqed.jct.CancelToken;
+import com.github.romanqed.jct.Cancellation;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races combining tokens and registering on the combination against cancellation of an input:
+ * the combined token must end up cancelled, with its callback run exactly once.
+ */
+@JCStressTest
+@Outcome(id = "true, 1", expect = Expect.ACCEPTABLE, desc = "Combined token cancelled, callback ran once")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Lost cancel or duplicate callback")
+@State
+public class CombinedTokenStress {
+    private final CancelSource first = Cancellation.source();
+    private final CancelSource second = Cancellation.source();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile CancelToken combined;
+
+    @Actor
+    public void combine() {
+        var combined = Cancellation.combinedToken(first.token(), second.token());
+        combined.register(calls::incrementAndGet);
+        this.combined = combined;
+    }
+
+    @Actor
+    public void cancel() {
+        first.cancel();
+    }
+
+    @Arbiter
+    public void arbiter(ZI_Result r) {
+        r.r1 = combined.canceled();
+        r.r2 = calls.get();
+    }
+}
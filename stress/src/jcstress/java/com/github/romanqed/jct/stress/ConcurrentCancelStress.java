@@ -0,0 +1,31 @@
+package com.github.romanqed.jct.stress;
+
+import com.github.romanqed.jct.CancelReason;
+import com.github.romanqed.jct.CancelSource;
+import com.github.romanqed.jct.Cancellation;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+/**
+ * Races two cancellations: whichever loses the reason race must still observe the token as cancelled
+ * once its {@link CancelSource#cancel(CancelReason)} call returns.
+ */
+@JCStressTest
+@Outcome(id = "true, true", expect = Expect.ACCEPTABLE, desc = "Both cancellers observe the cancellation")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Cancel returned before the token was cancelled")
+@State
+public class ConcurrentCancelStress {
+    private final CancelSource source = Cancellation.source();
+
+    @Actor
+    public void timeout(ZZ_Result r) {
+        source.cancel(CancelReason.TIMEOUT);
+        r.r1 = source.token().canceled();
+    }
+
+    @Actor
+    public void shutdown(ZZ_Result r) {
+        source.cancel(CancelReason.SHUTDOWN);
+        r.r2 = source.token().canceled();
+    }
+}
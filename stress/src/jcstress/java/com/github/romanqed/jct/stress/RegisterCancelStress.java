@@ -0,0 +1,37 @@
+package com.github.romanqed.jct.stress;
+
+import com.github.romanqed.jct.CancelSource;
+import com.github.romanqed.jct.Cancellation;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races callback registration against cancellation: the callback must run exactly once,
+ * either from the cancelling thread or inline in the registering one.
+ */
+@JCStressTest
+@Outcome(id = "1", expect = Expect.ACCEPTABLE, desc = "Callback ran once")
+@Outcome(id = "0", expect = Expect.FORBIDDEN, desc = "Callback never ran")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Callback ran more than once")
+@State
+public class RegisterCancelStress {
+    private final CancelSource source = Cancellation.source();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Actor
+    public void register() {
+        source.token().register(calls::incrementAndGet);
+    }
+
+    @Actor
+    public void cancel() {
+        source.cancel();
+    }
+
+    @Arbiter
+    public void arbiter(I_Result r) {
+        r.r1 = calls.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.romanqed.jct.stress;
+
+import com.github.romanqed.jct.CancelSource;
+import com.github.romanqed.jct.Cancellation;
+import com.github.romanqed.jct.Registration;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races {@link Registration#unregister()} against cancellation: a successful unregister means
+ * the callback never runs, a failed one means it has run.
+ */
+@JCStressTest
+@Outcome(id = "true, 0", expect = Expect.ACCEPTABLE, desc = "Unregistered before cancellation")
+@Outcome(id = "false, 1", expect = Expect.ACCEPTABLE, desc = "Callback fired before unregister")
+@Outcome(id = "true, 1", expect = Expect.FORBIDDEN, desc = "Unregistered callback still ran")
+@Outcome(id = "false, 0", expect = Expect.FORBIDDEN, desc = "Callback neither removed nor run")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Callback ran more than once")
+@State
+public class UnregisterCancelStress {
+    private final CancelSource source = Cancellation.source();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Registration registration = source.token().register(calls::incrementAndGet);
+
+    @Actor
+    public void unregister(ZI_Result r) {
+        r.r1 = registration.unregister();
+    }
+
+    @Actor
+    public void cancel() {
+        source.cancel();
+    }
+
+    @Arbiter
+    public void arbiter(ZI_Result r) {
+        r.r2 = calls.get();
+    }
+}